@@ -0,0 +1,115 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side encoding work done before a request is handed to grpc, and decoding done after
+ * a response is received.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImmuClientEncodingBenchmark {
+
+  @Param({"32", "4096", "65536"})
+  private int valueSize;
+
+  @Param({"1000"})
+  private int batchSize;
+
+  private byte[] value;
+  private ByteString wrappedValue;
+
+  private byte[][] keys;
+  private byte[][] values;
+
+  private KVList kvList;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(valueSize);
+
+    value = new byte[valueSize];
+    rnd.nextBytes(value);
+    wrappedValue = ImmuClient.wrapContent(value);
+
+    keys = new byte[batchSize][];
+    values = new byte[batchSize][];
+
+    for (int i = 0; i < batchSize; i++) {
+      keys[i] = ("key" + i).getBytes();
+      values[i] = new byte[valueSize];
+      rnd.nextBytes(values[i]);
+    }
+
+    kvList = buildList();
+  }
+
+  @Benchmark
+  public ByteString wrapContent() {
+    return ImmuClient.wrapContent(value);
+  }
+
+  @Benchmark
+  public ByteString unwrapContent() {
+    return ImmuClient.unwrapContent(wrappedValue);
+  }
+
+  @Benchmark
+  public byte[] unwrapContentCopy() {
+    return ImmuClient.unwrapContent(wrappedValue).toByteArray();
+  }
+
+  @Benchmark
+  public KVList buildKVList() {
+    return buildList();
+  }
+
+  @Benchmark
+  public ImmudbProto.KVList encodeKVList() {
+    return ImmuClient.buildKVList(kvList);
+  }
+
+  private KVList buildList() {
+    KVList.KVListBuilder builder = KVList.newBuilder().withExpectedSize(batchSize);
+
+    for (int i = 0; i < batchSize; i++) {
+      builder.add(keys[i], values[i]);
+    }
+
+    return builder.build();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.VerificationException;
+import io.codenotary.immudb4j.testing.InMemoryImmuServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end client throughput against the in-memory server over the in-process transport, i.e.
+ * without network or server side storage costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class InMemoryClientBenchmark {
+
+  private static final int KEY_COUNT = 1024;
+
+  private final byte[] value = new byte[128];
+
+  private InMemoryImmuServer server;
+
+  private ImmuClient immuClient;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, VerificationException {
+    server = InMemoryImmuServer.start();
+
+    immuClient = ImmuClient.newBuilder().setChannel(server.newChannel()).build();
+    immuClient.login("immudb", "immudb");
+
+    for (int i = 0; i < KEY_COUNT; i++) {
+      immuClient.safeSet("key" + i, value);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    immuClient.shutdown();
+    server.close();
+  }
+
+  @Benchmark
+  public void set() {
+    immuClient.set("key" + ThreadLocalRandom.current().nextInt(KEY_COUNT), value);
+  }
+
+  @Benchmark
+  public byte[] get() {
+    return immuClient.get("key" + ThreadLocalRandom.current().nextInt(KEY_COUNT));
+  }
+
+  @Benchmark
+  public void safeSet() throws VerificationException {
+    immuClient.safeSet("key" + ThreadLocalRandom.current().nextInt(KEY_COUNT), value);
+  }
+
+  @Benchmark
+  public byte[] safeGet() throws VerificationException {
+    return immuClient.safeGet("key" + ThreadLocalRandom.current().nextInt(KEY_COUNT));
+  }
+}
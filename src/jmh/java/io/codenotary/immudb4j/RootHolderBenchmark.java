@@ -0,0 +1,105 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of root holders, each setRoot call advancing the root index as a verified
+ * operation would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RootHolderBenchmark {
+
+  private static final String DATABASE = "defaultdb";
+
+  private final AtomicLong index = new AtomicLong();
+
+  private final byte[] digest = new byte[32];
+
+  private Path rootsFolder;
+
+  private FileRootHolder fileRootHolder;
+
+  private SerializableRootHolder serializableRootHolder;
+
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+    rootsFolder = Files.createTempDirectory("immudb4j-roots");
+
+    fileRootHolder = FileRootHolder.newBuilder().setRootsFolder(rootsFolder.toString()).build();
+    serializableRootHolder = new SerializableRootHolder();
+
+    fileRootHolder.setRoot(new Root(DATABASE, 0, digest));
+    serializableRootHolder.setRoot(new Root(DATABASE, 0, digest));
+
+    index.set(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(rootsFolder)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void fileRootHolderSetRoot() {
+    fileRootHolder.setRoot(new Root(DATABASE, index.incrementAndGet(), digest));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void fileRootHolderSetRootContended() {
+    fileRootHolder.setRoot(new Root(DATABASE, index.incrementAndGet(), digest));
+  }
+
+  @Benchmark
+  public Root fileRootHolderGetRoot() {
+    return fileRootHolder.getRoot(DATABASE);
+  }
+
+  @Benchmark
+  public void serializableRootHolderSetRoot() {
+    serializableRootHolder.setRoot(new Root(DATABASE, index.incrementAndGet(), digest));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proof verification cost as a function of the tree size, i.e. of the proof depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoUtilsBenchmark {
+
+  @Param({"16", "1024", "65536", "1048576"})
+  private int treeSize;
+
+  @Param({"32", "1024"})
+  private int valueSize;
+
+  // "jca" for the most preferred provider, otherwise a JCA provider name
+  @Param({"jca", "SUN"})
+  private String hasherProvider;
+
+  private Hasher hasher;
+
+  private ImmudbProto.Item item;
+  private ImmudbProto.Proof proof;
+  private Root root;
+
+  @Setup
+  public void setup() {
+    hasher = hasherProvider.equals("jca") ? Hasher.jca() : Hasher.ofProvider(hasherProvider);
+
+    Random rnd = new Random(treeSize);
+    MerkleTree tree = new MerkleTree();
+
+    byte[] value = new byte[valueSize];
+
+    for (int i = 0; i < treeSize; i++) {
+      rnd.nextBytes(value);
+
+      ImmudbProto.Item it =
+          ImmudbProto.Item.newBuilder()
+              .setKey(ByteString.copyFromUtf8("key" + i))
+              .setValue(ByteString.copyFrom(value))
+              .setIndex(i)
+              .build();
+
+      tree.add(it);
+
+      // verify a leaf in the middle of the tree, as a client would after a safe read
+      if (i == treeSize / 2) {
+        item = it;
+      }
+    }
+
+    // a trusted root slightly behind the current one forces a non trivial consistency path
+    long firstSize = Math.max(1, treeSize - treeSize / 3 - 1);
+
+    proof = tree.proof(item.getIndex(), treeSize, firstSize);
+    root = new Root("defaultdb", firstSize - 1, tree.root(firstSize));
+  }
+
+  @Benchmark
+  public void verify() throws VerificationException {
+    CryptoUtils.verify(proof, item, root, hasher);
+  }
+
+  @Benchmark
+  public void verifyInclusion() throws VerificationException {
+    CryptoUtils.verifyInclusion(proof, hasher);
+  }
+
+  @Benchmark
+  public void verifyConsistency() throws VerificationException {
+    if (root.getIndex() > 0) {
+      CryptoUtils.verifyConsistency(proof, root, hasher);
+    }
+  }
+
+  @Benchmark
+  public byte[] entryDigest() {
+    return CryptoUtils.entryDigest(item, hasher);
+  }
+}
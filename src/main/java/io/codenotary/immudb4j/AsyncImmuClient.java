@@ -0,0 +1,432 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.codenotary.immudb.ImmudbProto;
+import io.codenotary.immudb4j.crypto.BatchVerifier;
+import io.codenotary.immudb4j.crypto.CryptoUtils;
+import io.codenotary.immudb4j.crypto.Root;
+import io.codenotary.immudb4j.crypto.VerificationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking counterpart of {@link ImmuClient}.
+ *
+ * <p>Every operation returns immediately with a {@link CompletableFuture}. Proof verification
+ * and root updates run as continuations of the grpc response, so no caller thread is held for
+ * the duration of a round-trip. A failed verification completes the future exceptionally with
+ * a {@link VerificationException}. Since roots are then updated concurrently, the root holder of
+ * the owning client must be thread-safe and only ever advance, see
+ * {@link ImmuClient.ImmuClientBuilder#setRootHolder}.
+ *
+ * <p>Instances are obtained through {@link ImmuClient#async()}; session handling (login,
+ * useDatabase, logout) is done through the owning {@link ImmuClient}.
+ */
+public class AsyncImmuClient {
+
+  private final ImmuClient client;
+
+  private final BatchVerifier batchVerifier;
+
+  AsyncImmuClient(ImmuClient client) {
+    this.client = client;
+    this.batchVerifier = BatchVerifier.newBuilder().setHasher(client.getHasher()).build();
+  }
+
+  public CompletableFuture<Root> root() {
+    String database = client.getActiveDatabase();
+    RootHolder rootHolder = client.getRootHolder();
+
+    Root root = rootHolder.getRoot(database);
+
+    if (root != null) {
+      return CompletableFuture.completedFuture(root);
+    }
+
+    Empty empty = com.google.protobuf.Empty.getDefaultInstance();
+
+    return toCompletableFuture(client.getFutureStub().currentRoot(empty))
+        .thenApply(
+            r -> {
+              rootHolder.setRoot(
+                  new Root(database, r.getPayload().getIndex(), r.getPayload().getRoot().toByteArray()));
+              return rootHolder.getRoot(database);
+            });
+  }
+
+  public CompletableFuture<Void> set(String key, byte[] value) {
+    return set(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Void> set(byte[] key, byte[] value) {
+    return rawSet(ByteString.copyFrom(key), ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Void> set(ByteString key, ByteString value) {
+    return rawSet(key, ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<byte[]> get(String key) {
+    return get(key.getBytes(Charsets.UTF_8));
+  }
+
+  public CompletableFuture<byte[]> get(byte[] key) {
+    return rawGetValue(key).thenApply(value -> ImmuClient.unwrapContent(value).toByteArray());
+  }
+
+  public CompletableFuture<byte[]> safeGet(String key) {
+    return safeGet(key.getBytes(Charsets.UTF_8));
+  }
+
+  public CompletableFuture<byte[]> safeGet(byte[] key) {
+    return safeRawGet(key).thenApply(ImmuClient::unwrapContent);
+  }
+
+  public CompletableFuture<Void> safeSet(String key, byte[] value) {
+    return safeSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Void> safeSet(byte[] key, byte[] value) {
+    return safeRawSet(ByteString.copyFrom(key), ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Void> safeSet(ByteString key, ByteString value) {
+    return safeRawSet(key, ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Void> rawSet(String key, byte[] value) {
+    return rawSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Void> rawSet(byte[] key, byte[] value) {
+    return rawSet(ByteString.copyFrom(key), ByteString.copyFrom(value));
+  }
+
+  public CompletableFuture<Void> rawSet(ByteString key, ByteString value) {
+    String database = client.getActiveDatabase();
+
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
+
+    return toCompletableFuture(client.getFutureStub().set(kv))
+        .whenComplete((index, t) -> client.invalidateCachedRead(database, kv.getKey()))
+        .thenApply(index -> null);
+  }
+
+  public CompletableFuture<byte[]> rawGet(String key) {
+    return rawGet(key.getBytes(Charsets.UTF_8));
+  }
+
+  public CompletableFuture<byte[]> rawGet(byte[] key) {
+    return rawGetValue(key).thenApply(ByteString::toByteArray);
+  }
+
+  private CompletableFuture<ByteString> rawGetValue(byte[] key) {
+    ImmudbProto.Key k = ImmudbProto.Key.newBuilder().setKey(ByteString.copyFrom(key)).build();
+
+    return toCompletableFuture(client.getFutureStub().get(k)).thenApply(ImmudbProto.Item::getValue);
+  }
+
+  public CompletableFuture<byte[]> safeRawGet(String key) {
+    return safeRawGet(key.getBytes(Charsets.UTF_8));
+  }
+
+  public CompletableFuture<byte[]> safeRawGet(byte[] key) {
+    return root().thenCompose(root -> safeRawGet(key, root));
+  }
+
+  public CompletableFuture<byte[]> safeRawGet(byte[] key, Root root) {
+    String database = client.getActiveDatabase();
+
+    ImmudbProto.Index index = ImmudbProto.Index.newBuilder().setIndex(root.getIndex()).build();
+
+    ImmudbProto.SafeGetOptions sOpts =
+        ImmudbProto.SafeGetOptions.newBuilder()
+            .setKey(ByteString.copyFrom(key))
+            .setRootIndex(index)
+            .build();
+
+    return toCompletableFuture(client.getFutureStub().safeGet(sOpts))
+        .thenApply(
+            safeItem -> {
+              verifyAndUpdateRoot(database, safeItem.getProof(), safeItem.getItem(), root);
+              return safeItem.getItem().getValue().toByteArray();
+            });
+  }
+
+  public CompletableFuture<Void> safeRawSet(String key, byte[] value) {
+    return safeRawSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Void> safeRawSet(byte[] key, byte[] value) {
+    return root().thenCompose(root -> safeRawSet(key, value, root));
+  }
+
+  public CompletableFuture<Void> safeRawSet(byte[] key, byte[] value, Root root) {
+    return safeRawSet(ByteString.copyFrom(key), ByteString.copyFrom(value), root);
+  }
+
+  public CompletableFuture<Void> safeRawSet(ByteString key, ByteString value) {
+    return root().thenCompose(root -> safeRawSet(key, value, root));
+  }
+
+  public CompletableFuture<Void> safeRawSet(ByteString key, ByteString value, Root root) {
+    String database = client.getActiveDatabase();
+
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
+
+    ImmudbProto.SafeSetOptions sOpts =
+        ImmudbProto.SafeSetOptions.newBuilder()
+            .setKv(kv)
+            .setRootIndex(ImmudbProto.Index.newBuilder().setIndex(root.getIndex()).build())
+            .build();
+
+    return toCompletableFuture(client.getFutureStub().safeSet(sOpts))
+        .whenComplete((proof, t) -> client.invalidateCachedRead(database, kv.getKey()))
+        .thenApply(
+            proof -> {
+              ImmudbProto.Item item =
+                  ImmudbProto.Item.newBuilder()
+                      .setIndex(proof.getIndex())
+                      .setKey(kv.getKey())
+                      .setValue(kv.getValue())
+                      .build();
+
+              try {
+                client.verifyWrite(database, proof, item, root);
+              } catch (VerificationException e) {
+                throw new CompletionException(e);
+              }
+
+              client.getRootHolder()
+                  .setRoot(new Root(database, proof.getAt(), proof.getRoot().toByteArray()));
+              return null;
+            });
+  }
+
+  public CompletableFuture<Void> setAll(KVList kvList) {
+    KVList.KVListBuilder svListBuilder = KVList.newBuilder().withExpectedSize(kvList.entries().size());
+
+    for (KV kv : kvList.entries()) {
+      svListBuilder.add(new ByteStringKV(kv.getKeyBytes(), ImmuClient.wrapContent(kv.getValueBytes())));
+    }
+
+    return rawSetAll(svListBuilder.build());
+  }
+
+  /**
+   * Writes the given entries, split into chunks sent concurrently, see
+   * {@link ImmuClient#rawSetAll(KVList)}.
+   */
+  public CompletableFuture<Void> rawSetAll(KVList kvList) {
+    return rawSetAll(BatchChunks.of(kvList, client.getMaxBatchSize(), client.getMaxBatchBytes()));
+  }
+
+  CompletableFuture<Void> rawSetAll(List<ImmudbProto.KVList> chunks) {
+    String database = client.getActiveDatabase();
+
+    CompletableFuture<?>[] responses = new CompletableFuture<?>[chunks.size()];
+
+    for (int i = 0; i < chunks.size(); i++) {
+      ImmudbProto.KVList kvs = chunks.get(i);
+
+      responses[i] =
+          toCompletableFuture(client.getFutureStub().setBatch(kvs))
+              .whenComplete((index, t) -> client.invalidateCachedReads(database, kvs));
+    }
+
+    return CompletableFuture.allOf(responses);
+  }
+
+  public CompletableFuture<List<KV>> getAll(List<?> keyList) {
+    return rawGetAll(keyList)
+        .thenApply(
+            rawKVs -> {
+              List<KV> kvs = new ArrayList<>(rawKVs.size());
+
+              for (KV rawKV : rawKVs) {
+                kvs.add(new ByteStringKV(rawKV.getKeyBytes(), ImmuClient.unwrapContent(rawKV.getValueBytes())));
+              }
+
+              return kvs;
+            });
+  }
+
+  /**
+   * Reads the given keys, split into chunks sent concurrently when the client was built with a
+   * max batch size or max batch bytes they exceed. The items of all chunks are returned in the
+   * order of the keys.
+   */
+  public CompletableFuture<List<KV>> rawGetAll(List<?> keyList) {
+    List<byte[]> kList = ImmuClient.toByteKeys(keyList);
+
+    if (kList.size() == 0) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+
+    return rawGetChunks(BatchChunks.of(kList, client.getMaxBatchSize(), client.getMaxBatchBytes()));
+  }
+
+  CompletableFuture<List<KV>> rawGetChunks(List<ImmudbProto.KeyList> chunks) {
+    List<CompletableFuture<ImmudbProto.ItemList>> responses = new ArrayList<>(chunks.size());
+
+    for (ImmudbProto.KeyList keys : chunks) {
+      responses.add(toCompletableFuture(client.getFutureStub().getBatch(keys)));
+    }
+
+    return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            v -> {
+              List<KV> result = new ArrayList<>();
+
+              for (CompletableFuture<ImmudbProto.ItemList> response : responses) {
+                for (ImmudbProto.Item item : response.join().getItemsList()) {
+                  result.add(new ByteStringKV(item.getKey(), item.getValue()));
+                }
+              }
+
+              return result;
+            });
+  }
+
+  public CompletableFuture<List<KV>> safeGetAll(List<?> keyList) {
+    return safeRawGetAll(keyList)
+        .thenApply(
+            rawKVs -> {
+              List<KV> kvs = new ArrayList<>(rawKVs.size());
+
+              for (KV rawKV : rawKVs) {
+                kvs.add(new ByteStringKV(rawKV.getKeyBytes(), ImmuClient.unwrapContent(rawKV.getValueBytes())));
+              }
+
+              return kvs;
+            });
+  }
+
+  /**
+   * Reads the given keys with one SafeGet call each, all issued at once and pinned to the same
+   * trusted root. The returned proofs are verified together, so consistency with the trusted root
+   * is only checked once per distinct tree size.
+   */
+  public CompletableFuture<List<KV>> safeRawGetAll(List<?> keyList) {
+    List<byte[]> kList = ImmuClient.toByteKeys(keyList);
+
+    if (kList.size() == 0) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+
+    return root().thenCompose(root -> safeRawGetAll(kList, root));
+  }
+
+  private CompletableFuture<List<KV>> safeRawGetAll(List<byte[]> keyList, Root root) {
+    String database = client.getActiveDatabase();
+
+    ImmudbProto.Index index = ImmudbProto.Index.newBuilder().setIndex(root.getIndex()).build();
+
+    List<CompletableFuture<ImmudbProto.SafeItem>> calls = new ArrayList<>(keyList.size());
+
+    for (byte[] key : keyList) {
+      ImmudbProto.SafeGetOptions sOpts =
+          ImmudbProto.SafeGetOptions.newBuilder()
+              .setKey(ByteString.copyFrom(key))
+              .setRootIndex(index)
+              .build();
+
+      calls.add(toCompletableFuture(client.getFutureStub().safeGet(sOpts)));
+    }
+
+    return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            v -> {
+              List<ImmudbProto.SafeItem> safeItems = new ArrayList<>(calls.size());
+
+              for (CompletableFuture<ImmudbProto.SafeItem> call : calls) {
+                safeItems.add(call.join());
+              }
+
+              try {
+                batchVerifier.verify(safeItems, root);
+              } catch (VerificationException e) {
+                throw new CompletionException(e);
+              }
+
+              ImmudbProto.Proof latest = safeItems.get(0).getProof();
+              List<KV> result = new ArrayList<>(safeItems.size());
+
+              for (ImmudbProto.SafeItem safeItem : safeItems) {
+                if (safeItem.getProof().getAt() > latest.getAt()) {
+                  latest = safeItem.getProof();
+                }
+
+                ImmudbProto.Item item = safeItem.getItem();
+                result.add(new ByteStringKV(item.getKey(), item.getValue()));
+              }
+
+              client.getRootHolder()
+                  .setRoot(new Root(database, latest.getAt(), latest.getRoot().toByteArray()));
+
+              return result;
+            });
+  }
+
+  private void verifyAndUpdateRoot(
+      String database, ImmudbProto.Proof proof, ImmudbProto.Item item, Root root) {
+    try {
+      CryptoUtils.verify(proof, item, root, client.getHasher());
+    } catch (VerificationException e) {
+      throw new CompletionException(e);
+    }
+
+    client.getRootHolder().setRoot(new Root(database, proof.getAt(), proof.getRoot().toByteArray()));
+  }
+
+  static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenableFuture) {
+    CompletableFuture<T> future =
+        new CompletableFuture<T>() {
+          @Override
+          public boolean cancel(boolean mayInterruptIfRunning) {
+            listenableFuture.cancel(mayInterruptIfRunning);
+            return super.cancel(mayInterruptIfRunning);
+          }
+        };
+
+    Futures.addCallback(
+        listenableFuture,
+        new FutureCallback<T>() {
+          @Override
+          public void onSuccess(T result) {
+            future.complete(result);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            future.completeExceptionally(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+
+    return future;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ * Attaches the authorization header of the current session to every call.
+ *
+ * <p>The header value is only rebuilt when the token changes, i.e. on login, useDatabase and
+ * logout, so that calls made in between share it instead of allocating their own metadata.
+ */
+class AuthInterceptor implements ClientInterceptor {
+
+  private static final Metadata.Key<String> AUTH_HEADER =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+  private volatile String authorization;
+
+  void setToken(String token) {
+    authorization = token == null ? null : "Bearer " + token;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    String authorization = this.authorization;
+
+    if (authorization == null) {
+      return next.newCall(method, callOptions);
+    }
+
+    return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+        next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        headers.put(AUTH_HEADER, authorization);
+        super.start(responseListener, headers);
+      }
+    };
+  }
+}
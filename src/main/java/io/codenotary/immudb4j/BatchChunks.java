@@ -0,0 +1,95 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import io.codenotary.immudb.ImmudbProto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the entries of SetBatch and GetBatch requests into chunks bounded both in number of
+ * entries and in encoded size, keeping their order. An entry larger than the size bound is sent
+ * alone in its chunk.
+ */
+final class BatchChunks {
+
+  private BatchChunks() {}
+
+  static List<ImmudbProto.KVList> of(KVList kvList, int maxSize, int maxBytes) {
+    List<ImmudbProto.KVList> chunks = new ArrayList<>();
+
+    ImmudbProto.KVList.Builder chunk = ImmudbProto.KVList.newBuilder();
+    long chunkBytes = 0;
+
+    for (KV kv : kvList.entries()) {
+      ImmudbProto.KeyValue skv =
+          ImmudbProto.KeyValue.newBuilder()
+              .setKey(kv.getKeyBytes())
+              .setValue(kv.getValueBytes())
+              .build();
+
+      int size = CodedOutputStream.computeMessageSize(ImmudbProto.KVList.KVS_FIELD_NUMBER, skv);
+
+      if (chunk.getKVsCount() > 0
+          && (chunk.getKVsCount() >= maxSize || chunkBytes + size > maxBytes)) {
+        chunks.add(chunk.build());
+        chunk = ImmudbProto.KVList.newBuilder();
+        chunkBytes = 0;
+      }
+
+      chunk.addKVs(skv);
+      chunkBytes += size;
+    }
+
+    if (chunk.getKVsCount() > 0 || chunks.isEmpty()) {
+      chunks.add(chunk.build());
+    }
+
+    return chunks;
+  }
+
+  static List<ImmudbProto.KeyList> of(List<byte[]> keyList, int maxSize, int maxBytes) {
+    List<ImmudbProto.KeyList> chunks = new ArrayList<>();
+
+    ImmudbProto.KeyList.Builder chunk = ImmudbProto.KeyList.newBuilder();
+    long chunkBytes = 0;
+
+    for (byte[] key : keyList) {
+      ImmudbProto.Key k = ImmudbProto.Key.newBuilder().setKey(ByteString.copyFrom(key)).build();
+
+      int size = CodedOutputStream.computeMessageSize(ImmudbProto.KeyList.KEYS_FIELD_NUMBER, k);
+
+      if (chunk.getKeysCount() > 0
+          && (chunk.getKeysCount() >= maxSize || chunkBytes + size > maxBytes)) {
+        chunks.add(chunk.build());
+        chunk = ImmudbProto.KeyList.newBuilder();
+        chunkBytes = 0;
+      }
+
+      chunk.addKeys(k);
+      chunkBytes += size;
+    }
+
+    if (chunk.getKeysCount() > 0 || chunks.isEmpty()) {
+      chunks.add(chunk.build());
+    }
+
+    return chunks;
+  }
+}
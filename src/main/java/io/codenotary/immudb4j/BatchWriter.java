@@ -0,0 +1,180 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.common.base.Charsets;
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Write-behind writer coalescing concurrent set operations into SetBatch requests.
+ *
+ * <p>Writes are gathered until either the maximum batch size is reached or the oldest pending
+ * write has waited for the maximum delay, then sent as a single KVList. Each returned future is
+ * completed with the index assigned to its own entry. Entries of a batch are assigned contiguous
+ * indexes in submission order, the server replying with the index of the last one.
+ *
+ * <p>Writes are sent with the session and active database of the client at flush time.
+ */
+public class BatchWriter implements AutoCloseable {
+
+  private final ImmuClient client;
+
+  private final Coalescer<PendingWrite> coalescer;
+
+  private BatchWriter(BatchWriterBuilder builder) {
+    this.client = builder.client;
+    this.coalescer =
+        new Coalescer<>(
+            builder.maxBatchSize, builder.maxDelayMillis, "immudb4j-batch-writer", this::send);
+  }
+
+  public static BatchWriterBuilder newBuilder(ImmuClient client) {
+    return new BatchWriterBuilder(client);
+  }
+
+  public CompletableFuture<Long> set(String key, byte[] value) {
+    return set(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Long> set(byte[] key, byte[] value) {
+    return rawSet(ByteString.copyFrom(key), ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Long> set(ByteString key, ByteString value) {
+    return rawSet(key, ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Long> rawSet(String key, byte[] value) {
+    return rawSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Long> rawSet(byte[] key, byte[] value) {
+    return rawSet(ByteString.copyFrom(key), ByteString.copyFrom(value));
+  }
+
+  public CompletableFuture<Long> rawSet(ByteString key, ByteString value) {
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
+
+    PendingWrite write = new PendingWrite(kv);
+
+    if (!coalescer.add(write)) {
+      write.future.completeExceptionally(new IllegalStateException("Batch writer closed"));
+    }
+
+    return write.future;
+  }
+
+  /** Sends pending writes without waiting for the batch to fill up. */
+  public void flush() {
+    coalescer.flush();
+  }
+
+  /** Sends pending writes and stops accepting new ones. */
+  @Override
+  public void close() {
+    coalescer.close();
+  }
+
+  private void send(List<PendingWrite> batch) {
+    String database = client.getActiveDatabase();
+
+    ImmudbProto.KVList.Builder builder = ImmudbProto.KVList.newBuilder();
+
+    for (PendingWrite write : batch) {
+      builder.addKVs(write.kv);
+    }
+
+    ImmudbProto.KVList kvs = builder.build();
+
+    CompletableFuture<ImmudbProto.Index> response;
+
+    try {
+      response = AsyncImmuClient.toCompletableFuture(client.getFutureStub().setBatch(kvs));
+    } catch (RuntimeException e) {
+      response = new CompletableFuture<>();
+      response.completeExceptionally(e);
+    }
+
+    response.whenComplete(
+        (index, t) -> {
+          client.invalidateCachedReads(database, kvs);
+
+          if (t != null) {
+            for (PendingWrite write : batch) {
+              write.future.completeExceptionally(t);
+            }
+            return;
+          }
+
+          long first = index.getIndex() - batch.size() + 1;
+
+          for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(first + i);
+          }
+        });
+  }
+
+  private static class PendingWrite {
+
+    private final ImmudbProto.KeyValue kv;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    PendingWrite(ImmudbProto.KeyValue kv) {
+      this.kv = kv;
+    }
+  }
+
+  public static class BatchWriterBuilder {
+
+    private final ImmuClient client;
+
+    private int maxBatchSize;
+
+    private long maxDelayMillis;
+
+    private BatchWriterBuilder(ImmuClient client) {
+      this.client = client;
+      this.maxBatchSize = 1000;
+      this.maxDelayMillis = 5;
+    }
+
+    public BatchWriter build() {
+      return new BatchWriter(this);
+    }
+
+    public int getMaxBatchSize() {
+      return maxBatchSize;
+    }
+
+    public long getMaxDelayMillis() {
+      return maxDelayMillis;
+    }
+
+    public BatchWriterBuilder setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    public BatchWriterBuilder setMaxDelayMillis(long maxDelayMillis) {
+      this.maxDelayMillis = maxDelayMillis;
+      return this;
+    }
+  }
+}
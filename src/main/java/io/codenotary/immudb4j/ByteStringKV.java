@@ -0,0 +1,65 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * Entry holding its key and value as ByteStrings, as received from the server, so that they can
+ * be read through {@link #getKeyBytes()}, {@link #getValueBytes()} and {@link #getValueBuffer()}
+ * without being copied. {@link #getKey()} and {@link #getValue()} return a new copy on each call.
+ *
+ * <p>Entries of this type are also written without copying their key and value.
+ */
+public class ByteStringKV implements KV {
+
+    private final ByteString key;
+    private final ByteString value;
+
+    public ByteStringKV(ByteString key, ByteString value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Wraps the given arrays without copying them. Ownership of the arrays is transferred to the
+     * entry: they must not be modified afterwards.
+     */
+    public static ByteStringKV wrap(byte[] key, byte[] value) {
+        return new ByteStringKV(UnsafeByteOperations.unsafeWrap(key), UnsafeByteOperations.unsafeWrap(value));
+    }
+
+    @Override
+    public byte[] getKey() {
+        return key.toByteArray();
+    }
+
+    @Override
+    public byte[] getValue() {
+        return value.toByteArray();
+    }
+
+    @Override
+    public ByteString getKeyBytes() {
+        return key;
+    }
+
+    @Override
+    public ByteString getValueBytes() {
+        return value;
+    }
+}
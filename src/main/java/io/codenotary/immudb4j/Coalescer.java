@@ -0,0 +1,133 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Gathers elements submitted from any thread into batches. A batch is handed to the processor
+ * as soon as it reaches the maximum size, or once the oldest element of the batch has waited for
+ * the maximum delay, whichever comes first.
+ */
+class Coalescer<E> implements AutoCloseable {
+
+  private final int maxBatchSize;
+  private final long maxDelayMillis;
+  private final Consumer<List<E>> processor;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lock = new Object();
+
+  private List<E> pending;
+  private ScheduledFuture<?> scheduledFlush;
+  private boolean closed;
+
+  Coalescer(int maxBatchSize, long maxDelayMillis, String threadName, Consumer<List<E>> processor) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Max batch size must be positive");
+    }
+
+    if (maxDelayMillis < 0) {
+      throw new IllegalArgumentException("Max delay must not be negative");
+    }
+
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayMillis = maxDelayMillis;
+    this.processor = processor;
+
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, threadName);
+              t.setDaemon(true);
+              return t;
+            });
+
+    this.pending = new ArrayList<>(maxBatchSize);
+  }
+
+  /** Adds an element to the current batch, unless closed, in which case false is returned. */
+  boolean add(E element) {
+    List<E> batch = null;
+
+    synchronized (lock) {
+      if (closed) {
+        return false;
+      }
+
+      pending.add(element);
+
+      if (pending.size() >= maxBatchSize) {
+        batch = takePending();
+      } else if (pending.size() == 1) {
+        scheduledFlush = scheduler.schedule(this::flush, maxDelayMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    if (batch != null) {
+      processor.accept(batch);
+    }
+
+    return true;
+  }
+
+  void flush() {
+    List<E> batch;
+
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+
+      batch = takePending();
+    }
+
+    processor.accept(batch);
+  }
+
+  private List<E> takePending() {
+    List<E> batch = pending;
+    pending = new ArrayList<>(maxBatchSize);
+
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+
+    return batch;
+  }
+
+  /** Processes any pending element and stops accepting new ones. */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+
+    flush();
+    scheduler.shutdown();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory root holder safe for concurrent use.
+ *
+ * <p>Readers never block: each database root is kept in its own atomic reference, which writers
+ * only ever advance, i.e. a root is ignored unless its index is greater than the current one.
+ */
+public class ConcurrentRootHolder implements RootHolder {
+
+  private final ConcurrentMap<String, AtomicReference<Root>> rootMap = new ConcurrentHashMap<>();
+
+  @Override
+  public Root getRoot(String database) {
+    AtomicReference<Root> ref = rootMap.get(database);
+    return ref == null ? null : ref.get();
+  }
+
+  @Override
+  public void setRoot(Root root) {
+    AtomicReference<Root> ref = rootMap.get(root.getDatabase());
+
+    if (ref == null) {
+      ref = rootMap.computeIfAbsent(root.getDatabase(), database -> new AtomicReference<>());
+    }
+
+    Root currentRoot;
+
+    do {
+      currentRoot = ref.get();
+
+      if (currentRoot != null && currentRoot.getIndex() >= root.getIndex()) {
+        return;
+      }
+    } while (!ref.compareAndSet(currentRoot, root));
+  }
+
+}
@@ -0,0 +1,354 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Empty;
+import io.codenotary.immudb.ImmudbProto;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Backs up the active database by streaming the Dump operation into a local file.
+ *
+ * <p>The file holds the KVList messages sent by the server, each prefixed by its varint encoded
+ * length, so that it can be read back with {@code ImmudbProto.KVList.parseDelimitedFrom}. It is
+ * optionally gzip compressed.
+ *
+ * <p>A new message is only requested from the server once the previous one has been written,
+ * so memory usage is bounded by a single message whatever the size of the database. Messages are
+ * written on the grpc callback threads, so the client should not use a direct executor.
+ */
+public class DumpBackup {
+
+  /**
+   * Receives the progress of a running backup.
+   */
+  public interface ProgressListener {
+
+    void onProgress(Stats stats);
+  }
+
+  /**
+   * Progress of a backup. Bytes are counted before compression.
+   */
+  public static class Stats {
+
+    private final long items;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    Stats(long items, long bytes, long elapsedNanos) {
+      this.items = items;
+      this.bytes = bytes;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getItems() {
+      return items;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getItemsPerSecond() {
+      return elapsedNanos == 0 ? 0 : items * 1e9 / elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+      return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ImmuClient client;
+  private final Path file;
+  private final boolean compressed;
+  private final ProgressListener progressListener;
+  private final long progressIntervalNanos;
+
+  private DumpBackup(DumpBackupBuilder builder) {
+    this.client = builder.client;
+    this.file = builder.file;
+    this.compressed = builder.compressed;
+    this.progressListener = builder.progressListener;
+    this.progressIntervalNanos = builder.progressIntervalMillis * 1_000_000L;
+  }
+
+  public static DumpBackupBuilder newBuilder(ImmuClient client) {
+    return new DumpBackupBuilder(client);
+  }
+
+  /**
+   * Starts the backup, replacing the file if it exists. The returned future is completed with
+   * the final stats once the file has been written and synced. Cancelling it cancels the backup.
+   */
+  public CompletableFuture<Stats> start() {
+    BackupFuture result = new BackupFuture();
+
+    FileChannel channel = null;
+    DumpObserver observer;
+
+    try {
+      channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+
+      observer = new DumpObserver(channel, result);
+    } catch (IOException e) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    // set first, so that a cancellation racing the start of the call is not missed
+    result.observer = observer;
+
+    client.getAsyncStub().dump(Empty.getDefaultInstance(), observer);
+
+    return result;
+  }
+
+  /**
+   * Cancels the backup before completing, so that a caller woken up by the cancellation finds the
+   * call and the file released.
+   */
+  private static class BackupFuture extends CompletableFuture<Stats> {
+
+    private volatile DumpObserver observer;
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      DumpObserver observer = this.observer;
+
+      if (observer != null && !isDone()) {
+        observer.cancel();
+      }
+
+      return super.cancel(mayInterruptIfRunning);
+    }
+  }
+
+  private class DumpObserver implements ClientResponseObserver<Empty, ImmudbProto.KVList> {
+
+    // the file is accessed by the grpc callbacks, and on cancellation by the cancelling thread,
+    // while holding the observer monitor
+    private final FileChannel channel;
+    private final GZIPOutputStream gzip;
+    private final OutputStream out;
+    private final CompletableFuture<Stats> result;
+
+    private final long start = System.nanoTime();
+    private long lastProgress = start;
+
+    private long items;
+    private long bytes;
+
+    private ClientCallStreamObserver<Empty> call;
+
+    private boolean cancelled;
+
+    DumpObserver(FileChannel channel, CompletableFuture<Stats> result) throws IOException {
+      OutputStream os = Channels.newOutputStream(channel);
+
+      this.channel = channel;
+      this.gzip = compressed ? new GZIPOutputStream(os, BUFFER_SIZE) : null;
+      this.out = new BufferedOutputStream(compressed ? gzip : os, BUFFER_SIZE);
+      this.result = result;
+    }
+
+    @Override
+    public synchronized void beforeStart(ClientCallStreamObserver<Empty> requestStream) {
+      // grpc requests the first message when the call is started
+      requestStream.disableAutoInboundFlowControl();
+      call = requestStream;
+
+      if (cancelled) {
+        call.cancel("Backup cancelled", null);
+      }
+    }
+
+    @Override
+    public synchronized void onNext(ImmudbProto.KVList kvList) {
+      if (cancelled || result.isDone()) {
+        return;
+      }
+
+      try {
+        kvList.writeDelimitedTo(out);
+      } catch (IOException e) {
+        fail(e);
+        call.cancel("Backup failed", e);
+        return;
+      }
+
+      int size = kvList.getSerializedSize();
+
+      items += kvList.getKVsCount();
+      bytes += CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+
+      long now = System.nanoTime();
+
+      if (progressListener != null && now - lastProgress >= progressIntervalNanos) {
+        lastProgress = now;
+        progressListener.onProgress(new Stats(items, bytes, now - start));
+      }
+
+      call.request(1);
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+      if (!cancelled) {
+        fail(t);
+      }
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+      if (cancelled || result.isDone()) {
+        return;
+      }
+
+      try {
+        out.flush();
+
+        if (gzip != null) {
+          gzip.finish();
+        }
+
+        channel.force(true);
+
+        // also releases the native memory of the deflater
+        out.close();
+      } catch (IOException e) {
+        fail(e);
+        return;
+      }
+
+      Stats stats = new Stats(items, bytes, System.nanoTime() - start);
+
+      if (progressListener != null) {
+        progressListener.onProgress(stats);
+      }
+
+      result.complete(stats);
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+
+      // the call is cancelled once started otherwise
+      if (call != null) {
+        call.cancel("Backup cancelled", null);
+      }
+
+      try {
+        close();
+      } catch (IOException e) {
+        // the backup is abandoned anyway
+      }
+    }
+
+    private void fail(Throwable t) {
+      try {
+        close();
+      } catch (IOException e) {
+        t.addSuppressed(e);
+      }
+
+      result.completeExceptionally(t);
+    }
+
+    private void close() throws IOException {
+      try {
+        out.close();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  public static class DumpBackupBuilder {
+
+    private final ImmuClient client;
+
+    private Path file;
+
+    private boolean compressed;
+
+    private ProgressListener progressListener;
+
+    private long progressIntervalMillis;
+
+    private DumpBackupBuilder(ImmuClient client) {
+      this.client = client;
+      this.progressIntervalMillis = 1000;
+    }
+
+    public DumpBackup build() {
+      if (file == null) {
+        throw new IllegalStateException("Backup file must be set");
+      }
+      return new DumpBackup(this);
+    }
+
+    public DumpBackupBuilder setFile(Path file) {
+      this.file = file;
+      return this;
+    }
+
+    public DumpBackupBuilder setCompressed(boolean compressed) {
+      this.compressed = compressed;
+      return this;
+    }
+
+    public DumpBackupBuilder setProgressListener(ProgressListener progressListener) {
+      this.progressListener = progressListener;
+      return this;
+    }
+
+    public DumpBackupBuilder setProgressIntervalMillis(long progressIntervalMillis) {
+      this.progressIntervalMillis = progressIntervalMillis;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.Empty;
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cold publisher over the server-streaming Dump operation.
+ *
+ * <p>Automatic inbound flow control is disabled on the underlying call: a new KVList message is
+ * only requested from the server once the previous one has been fully emitted and the subscriber
+ * still has outstanding demand, so memory usage is bounded by a single message.
+ */
+class DumpPublisher implements Publisher<KV> {
+
+  private final Supplier<ImmuServiceGrpc.ImmuServiceStub> stubs;
+
+  DumpPublisher(Supplier<ImmuServiceGrpc.ImmuServiceStub> stubs) {
+    this.stubs = stubs;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super KV> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("Subscriber must not be null");
+    }
+
+    DumpSubscription subscription = new DumpSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    stubs.get().dump(Empty.getDefaultInstance(), subscription);
+  }
+
+  private static class DumpSubscription
+      implements Subscription, ClientResponseObserver<Empty, ImmudbProto.KVList> {
+
+    private final Subscriber<? super KV> subscriber;
+
+    private final Queue<ImmudbProto.KVList> received = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile ClientCallStreamObserver<Empty> call;
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile Throwable error;
+
+    // grpc always requests the first message when the call is started
+    private boolean awaitingMessage = true;
+    private Iterator<ImmudbProto.KeyValue> current = Collections.emptyIterator();
+
+    DumpSubscription(Subscriber<? super KV> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Empty> requestStream) {
+      requestStream.disableAutoInboundFlowControl();
+      call = requestStream;
+    }
+
+    @Override
+    public void onNext(ImmudbProto.KVList kvList) {
+      received.offer(kvList);
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void onCompleted() {
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+        return;
+      }
+
+      requested.accumulateAndGet(n, (r, m) -> r + m < 0 ? Long.MAX_VALUE : r + m);
+
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      if (cancelled) {
+        return;
+      }
+
+      cancelled = true;
+
+      ClientCallStreamObserver<Empty> c = call;
+
+      if (c != null && !done) {
+        c.cancel("Subscription cancelled", null);
+      }
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+
+      int missed = 1;
+
+      do {
+        long r = requested.get();
+        long emitted = 0;
+
+        while (!cancelled) {
+          if (!current.hasNext()) {
+            ImmudbProto.KVList next = received.poll();
+
+            if (next != null) {
+              awaitingMessage = false;
+              current = next.getKVsList().iterator();
+              continue;
+            }
+
+            if (done) {
+              cancelled = true;
+
+              if (error != null) {
+                subscriber.onError(error);
+              } else {
+                subscriber.onComplete();
+              }
+
+              return;
+            }
+
+            if (emitted != r && !awaitingMessage && call != null) {
+              awaitingMessage = true;
+              call.request(1);
+            }
+
+            break;
+          }
+
+          if (emitted == r) {
+            break;
+          }
+
+          ImmudbProto.KeyValue kv = current.next();
+          subscriber.onNext(new ByteStringKV(kv.getKey(), kv.getValue()));
+          emitted++;
+        }
+
+        if (emitted != 0 && r != Long.MAX_VALUE) {
+          requested.addAndGet(-emitted);
+        }
+
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
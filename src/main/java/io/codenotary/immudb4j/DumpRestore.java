@@ -0,0 +1,380 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.CodedOutputStream;
+import io.codenotary.immudb.ImmudbProto;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Restores a file written by {@link DumpBackup} into the active database.
+ *
+ * <p>The file is read as a stream and its items are regrouped into SetBatch requests bounded both
+ * in number of items and in bytes, up to a configured number of requests being in flight at once.
+ * Memory usage is therefore bounded by the in-flight requests whatever the size of the file.
+ *
+ * <p>By default a single request is in flight, so that several versions of the same key are
+ * applied in the order of the file. Concurrent requests may be applied by the server in any order,
+ * so more of them should only be allowed when each key appears at most once in the backup.
+ *
+ * <p>If a request fails, no new request is sent and the restore completes with a
+ * {@link RestoreException} telling how many items from the beginning of the file have been
+ * acknowledged, so that it can be resumed from there.
+ */
+public class DumpRestore {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ImmuClient client;
+  private final Path file;
+  private final boolean compressed;
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final int maxInFlight;
+  private final long resumeFrom;
+  private final DumpBackup.ProgressListener progressListener;
+  private final long progressIntervalNanos;
+
+  private DumpRestore(DumpRestoreBuilder builder) {
+    this.client = builder.client;
+    this.file = builder.file;
+    this.compressed = builder.compressed;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.maxInFlight = builder.maxInFlight;
+    this.resumeFrom = builder.resumeFrom;
+    this.progressListener = builder.progressListener;
+    this.progressIntervalNanos = builder.progressIntervalMillis * 1_000_000L;
+  }
+
+  public static DumpRestoreBuilder newBuilder(ImmuClient client) {
+    return new DumpRestoreBuilder(client);
+  }
+
+  /**
+   * Starts the restore on a new thread. The returned future is completed with the stats of the
+   * items written by this run once all of them have been acknowledged, or exceptionally with a
+   * {@link RestoreException}.
+   */
+  public CompletableFuture<DumpBackup.Stats> start() {
+    CompletableFuture<DumpBackup.Stats> result = new CompletableFuture<>();
+
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                result.complete(run());
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+              }
+            },
+            "immudb4j-restore");
+
+    thread.setDaemon(true);
+    thread.start();
+
+    return result;
+  }
+
+  /**
+   * Runs the restore on the calling thread.
+   */
+  public DumpBackup.Stats run() throws RestoreException, InterruptedException {
+    String database = client.getActiveDatabase();
+
+    Progress progress = new Progress(resumeFrom);
+    Semaphore permits = new Semaphore(maxInFlight);
+
+    long start = System.nanoTime();
+    long lastProgress = start;
+
+    Throwable failure = null;
+
+    try (InputStream in = open()) {
+      ImmudbProto.KVList.Builder chunk = ImmudbProto.KVList.newBuilder();
+      long chunkStart = resumeFrom;
+      int chunkBytes = 0;
+
+      long position = 0;
+
+      ImmudbProto.KVList kvList;
+
+      read:
+      while ((kvList = ImmudbProto.KVList.parseDelimitedFrom(in)) != null) {
+        for (ImmudbProto.KeyValue kv : kvList.getKVsList()) {
+          if (position++ < resumeFrom) {
+            continue;
+          }
+
+          int size = CodedOutputStream.computeMessageSize(ImmudbProto.KVList.KVS_FIELD_NUMBER, kv);
+
+          if (chunk.getKVsCount() > 0
+              && (chunk.getKVsCount() >= maxBatchSize || chunkBytes + size > maxBatchBytes)) {
+            submit(database, chunk.build(), chunkStart, chunkBytes, progress, permits);
+
+            chunkStart += chunk.getKVsCount();
+            chunk = ImmudbProto.KVList.newBuilder();
+            chunkBytes = 0;
+
+            long now = System.nanoTime();
+
+            if (progressListener != null && now - lastProgress >= progressIntervalNanos) {
+              lastProgress = now;
+              progressListener.onProgress(progress.stats(now - start));
+            }
+
+            if (progress.failed()) {
+              break read;
+            }
+          }
+
+          chunk.addKVs(kv);
+          chunkBytes += size;
+        }
+      }
+
+      if (chunk.getKVsCount() > 0 && !progress.failed()) {
+        submit(database, chunk.build(), chunkStart, chunkBytes, progress, permits);
+      }
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    } finally {
+      // waits for the in-flight requests to settle
+      permits.acquire(maxInFlight);
+    }
+
+    if (failure == null) {
+      failure = progress.failure();
+    }
+
+    if (failure != null) {
+      throw new RestoreException(progress.acknowledged(), progress.lastIndex(), failure);
+    }
+
+    DumpBackup.Stats stats = progress.stats(System.nanoTime() - start);
+
+    if (progressListener != null) {
+      progressListener.onProgress(stats);
+    }
+
+    return stats;
+  }
+
+  private InputStream open() throws IOException {
+    InputStream in = Files.newInputStream(file);
+
+    try {
+      return new BufferedInputStream(compressed ? new GZIPInputStream(in, BUFFER_SIZE) : in, BUFFER_SIZE);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private void submit(
+      String database,
+      ImmudbProto.KVList kvs,
+      long chunkStart,
+      int chunkBytes,
+      Progress progress,
+      Semaphore permits)
+      throws InterruptedException {
+    permits.acquire();
+
+    CompletableFuture<ImmudbProto.Index> response;
+
+    try {
+      response = AsyncImmuClient.toCompletableFuture(client.getFutureStub().setBatch(kvs));
+    } catch (RuntimeException e) {
+      response = new CompletableFuture<>();
+      response.completeExceptionally(e);
+    }
+
+    response.whenComplete(
+        (index, t) -> {
+          client.invalidateCachedReads(database, kvs);
+
+          if (t != null) {
+            progress.fail(t);
+          } else {
+            progress.acknowledge(chunkStart, kvs.getKVsCount(), chunkBytes, index.getIndex());
+          }
+
+          permits.release();
+        });
+  }
+
+  /**
+   * Tracks the contiguous prefix of the file acknowledged by the server, chunks being possibly
+   * acknowledged out of order.
+   */
+  private static class Progress {
+
+    private final long resumeFrom;
+
+    private final Map<Long, long[]> pending = new HashMap<>();
+
+    private long acknowledged;
+    private long bytes;
+    private long lastIndex = -1;
+
+    private Throwable failure;
+
+    Progress(long resumeFrom) {
+      this.resumeFrom = resumeFrom;
+      this.acknowledged = resumeFrom;
+    }
+
+    synchronized void acknowledge(long start, int count, int chunkBytes, long index) {
+      pending.put(start, new long[] {count, chunkBytes, index});
+
+      long[] chunk;
+
+      while ((chunk = pending.remove(acknowledged)) != null) {
+        acknowledged += chunk[0];
+        bytes += chunk[1];
+        lastIndex = chunk[2];
+      }
+    }
+
+    synchronized void fail(Throwable t) {
+      if (failure == null) {
+        failure = t;
+      }
+    }
+
+    synchronized boolean failed() {
+      return failure != null;
+    }
+
+    synchronized Throwable failure() {
+      return failure;
+    }
+
+    synchronized long acknowledged() {
+      return acknowledged;
+    }
+
+    synchronized long lastIndex() {
+      return lastIndex;
+    }
+
+    synchronized DumpBackup.Stats stats(long elapsedNanos) {
+      return new DumpBackup.Stats(acknowledged - resumeFrom, bytes, elapsedNanos);
+    }
+  }
+
+  public static class DumpRestoreBuilder {
+
+    private final ImmuClient client;
+
+    private Path file;
+
+    private boolean compressed;
+
+    private int maxBatchSize;
+
+    private int maxBatchBytes;
+
+    private int maxInFlight;
+
+    private long resumeFrom;
+
+    private DumpBackup.ProgressListener progressListener;
+
+    private long progressIntervalMillis;
+
+    private DumpRestoreBuilder(ImmuClient client) {
+      this.client = client;
+      this.maxBatchSize = 1000;
+      this.maxBatchBytes = 1024 * 1024;
+      this.maxInFlight = 1;
+      this.progressIntervalMillis = 1000;
+    }
+
+    public DumpRestore build() {
+      if (file == null) {
+        throw new IllegalStateException("Backup file must be set");
+      }
+      if (maxBatchSize < 1 || maxBatchBytes < 1 || maxInFlight < 1) {
+        throw new IllegalStateException("Batch size, batch bytes and in-flight requests must be positive");
+      }
+      return new DumpRestore(this);
+    }
+
+    public DumpRestoreBuilder setFile(Path file) {
+      this.file = file;
+      return this;
+    }
+
+    public DumpRestoreBuilder setCompressed(boolean compressed) {
+      this.compressed = compressed;
+      return this;
+    }
+
+    public DumpRestoreBuilder setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum serialized size of a SetBatch request. A single item larger than that is
+     * still sent, alone in its request.
+     */
+    public DumpRestoreBuilder setMaxBatchBytes(int maxBatchBytes) {
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * Sets the number of SetBatch requests sent before the earlier ones are acknowledged. Defaults
+     * to one, which keeps the versions of a key in order.
+     */
+    public DumpRestoreBuilder setMaxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    /**
+     * Skips the given number of items from the beginning of the file, as reported by
+     * {@link RestoreException#getAcknowledgedItems()}.
+     */
+    public DumpRestoreBuilder setResumeFrom(long resumeFrom) {
+      this.resumeFrom = resumeFrom;
+      return this;
+    }
+
+    public DumpRestoreBuilder setProgressListener(DumpBackup.ProgressListener progressListener) {
+      this.progressListener = progressListener;
+      return this;
+    }
+
+    public DumpRestoreBuilder setProgressIntervalMillis(long progressIntervalMillis) {
+      this.progressIntervalMillis = progressIntervalMillis;
+      return this;
+    }
+  }
+}
@@ -17,14 +17,38 @@ package io.codenotary.immudb4j;
 
 import io.codenotary.immudb4j.crypto.Root;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-
-public class FileRootHolder implements RootHolder {
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class FileRootHolder implements RootHolder, Flushable, Closeable {
+
+  /**
+   * When roots are persisted. Only the latest root of each database is written, so roots advanced
+   * between two writes are coalesced.
+   */
+  public enum Durability {
+    /** Roots are persisted only on {@link #flush()}, {@link #close()} or client shutdown. */
+    NONE,
+    /** Roots are persisted in background at the configured flush interval. */
+    INTERVAL,
+    /** Roots are persisted on every root advance, leaving syncing to the operating system. */
+    EACH,
+    /** Roots are persisted and synced to the storage device on every root advance. */
+    FSYNC_EACH
+  }
 
   private Path rootsFolder;
   private Path currentRootFile;
@@ -32,6 +56,16 @@ public class FileRootHolder implements RootHolder {
 
   private SerializableRootHolder rootHolder;
 
+  private final Durability durability;
+
+  // set whenever a root advanced since the last write, guarded by this
+  private boolean dirty;
+
+  // serializes writes, which are performed out of the monitor guarding the in-memory roots
+  private final Object flushLock = new Object();
+
+  private ScheduledExecutorService flusher;
+
   private FileRootHolder(FileRootHolderBuilder builder) throws IOException {
     rootsFolder = Paths.get(builder.getRootsFolder());
 
@@ -56,7 +90,22 @@ public class FileRootHolder implements RootHolder {
         throw new RuntimeException("Inconsistent current root file");
       }
 
-      rootHolder.readFrom(Files.newInputStream(rootHolderFile));
+      try (InputStream is = Files.newInputStream(rootHolderFile)) {
+        rootHolder.readFrom(is);
+      }
+    }
+
+    durability = builder.getDurability();
+
+    if (durability == Durability.INTERVAL) {
+      flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "immudb4j-root-flusher");
+        t.setDaemon(true);
+        return t;
+      });
+
+      long interval = builder.getFlushIntervalMillis();
+      flusher.scheduleWithFixedDelay(this::flushInBackground, interval, interval, TimeUnit.MILLISECONDS);
     }
   }
 
@@ -66,41 +115,122 @@ public class FileRootHolder implements RootHolder {
   }
 
   @Override
-  public synchronized void setRoot(Root root) {
-    Root currentRoot = rootHolder.getRoot(root.getDatabase());
+  public void setRoot(Root root) {
+    synchronized (this) {
+      Root currentRoot = rootHolder.getRoot(root.getDatabase());
 
-    if (currentRoot != null && currentRoot.getIndex() >= root.getIndex()) {
-      return;
+      if (currentRoot != null && currentRoot.getIndex() >= root.getIndex()) {
+        return;
+      }
+
+      rootHolder.setRoot(root);
+      dirty = true;
     }
 
-    rootHolder.setRoot(root);
+    if (durability == Durability.EACH || durability == Durability.FSYNC_EACH) {
+      flush();
+    }
+  }
 
+  /**
+   * Persists the latest roots, if any advanced since the last write.
+   */
+  @Override
+  public void flush() {
+    synchronized (flushLock) {
+      byte[] roots;
+
+      synchronized (this) {
+        if (!dirty) {
+          return;
+        }
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        try {
+          rootHolder.writeTo(os);
+        } catch (IOException e) {
+          throw new RuntimeException("Unexpected error " + e);
+        }
+
+        roots = os.toByteArray();
+        dirty = false;
+      }
+
+      try {
+        write(roots);
+      } catch (IOException e) {
+        markDirty();
+        e.printStackTrace();
+        throw new RuntimeException("Unexpected error " + e);
+      } catch (RuntimeException e) {
+        markDirty();
+        throw e;
+      }
+    }
+  }
+
+  private synchronized void markDirty() {
+    dirty = true;
+  }
+
+  private void write(byte[] roots) throws IOException {
     Path newRootHolderFile = rootsFolder.resolve("root_" + System.nanoTime());
 
     if (Files.exists(newRootHolderFile)) {
       throw new RuntimeException("Attempt to create fresh root file failed. Please retry");
     }
 
-    try {
-      Files.createFile(newRootHolderFile);
-      rootHolder.writeTo(Files.newOutputStream(newRootHolderFile));
+    boolean sync = durability == Durability.FSYNC_EACH;
 
-      BufferedWriter bufferedWriter = Files.newBufferedWriter(currentRootFile, StandardOpenOption.TRUNCATE_EXISTING);
-      bufferedWriter.write(newRootHolderFile.getFileName().toString());
-      bufferedWriter.flush();
-      bufferedWriter.close();
+    writeFile(newRootHolderFile, roots, sync, StandardOpenOption.CREATE_NEW);
+    writeFile(currentRootFile,
+            newRootHolderFile.getFileName().toString().getBytes(StandardCharsets.UTF_8),
+            sync,
+            StandardOpenOption.TRUNCATE_EXISTING);
 
-      if (rootHolderFile != null) {
-        Files.delete(rootHolderFile);
+    if (rootHolderFile != null) {
+      Files.delete(rootHolderFile);
+    }
+
+    rootHolderFile = newRootHolderFile;
+  }
+
+  private static void writeFile(Path file, byte[] content, boolean sync, StandardOpenOption mode) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, mode)) {
+      ByteBuffer buffer = ByteBuffer.wrap(content);
+
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+
+      if (sync) {
+        channel.force(true);
       }
+    }
+  }
 
-      rootHolderFile = newRootHolderFile;
-    } catch (IOException e) {
+  private void flushInBackground() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // the roots are still dirty, the write is retried on the next run
       e.printStackTrace();
-      throw new RuntimeException("Unexpected error " + e);
     }
   }
 
+  /**
+   * Stops the background flusher, if any, and persists the latest roots.
+   */
+  @Override
+  public void close() {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+
+    flush();
+  }
+
   public static FileRootHolderBuilder newBuilder() {
     return new FileRootHolderBuilder();
   }
@@ -109,8 +239,14 @@ public class FileRootHolder implements RootHolder {
 
     private String rootsFolder;
 
+    private Durability durability;
+
+    private long flushIntervalMillis;
+
     private FileRootHolderBuilder() {
       rootsFolder = "roots";
+      durability = Durability.EACH;
+      flushIntervalMillis = 1000;
     }
 
     public FileRootHolder build() throws IOException {
@@ -125,6 +261,30 @@ public class FileRootHolder implements RootHolder {
     public String getRootsFolder() {
       return this.rootsFolder;
     }
+
+    public FileRootHolderBuilder setDurability(Durability durability) {
+      this.durability = durability;
+      return this;
+    }
+
+    public Durability getDurability() {
+      return this.durability;
+    }
+
+    /**
+     * Sets the interval between background writes when using {@link Durability#INTERVAL}.
+     */
+    public FileRootHolderBuilder setFlushIntervalMillis(long flushIntervalMillis) {
+      if (flushIntervalMillis <= 0) {
+        throw new IllegalArgumentException("Flush interval must be positive");
+      }
+      this.flushIntervalMillis = flushIntervalMillis;
+      return this;
+    }
+
+    public long getFlushIntervalMillis() {
+      return this.flushIntervalMillis;
+    }
   }
 
 }
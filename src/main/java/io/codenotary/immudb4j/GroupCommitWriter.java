@@ -0,0 +1,415 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.common.base.Charsets;
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import io.codenotary.immudb4j.crypto.CryptoUtils;
+import io.codenotary.immudb4j.crypto.Frontier;
+import io.codenotary.immudb4j.crypto.Hasher;
+import io.codenotary.immudb4j.crypto.Root;
+import io.codenotary.immudb4j.crypto.VerificationException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group-commit writer for verified writes.
+ *
+ * <p>Concurrent safe writes are gathered into groups. All the SafeSet requests of a group are
+ * pipelined against the same trusted root, and the inclusion proofs are verified in parallel on the
+ * verification executor as responses arrive. Consistency with the trusted root is then checked
+ * once per group, for the highest proof only, and the root holder is advanced to it. The other
+ * entries are linked to that root by folding them in order of index into a frontier, which only
+ * takes a hash per level and entry. Entries separated from it by a foreign write are proven with a
+ * proof fetched at that root instead.
+ *
+ * <p>Each returned future is completed with the index of its own entry, or exceptionally with a
+ * {@link VerificationException} if its proof does not verify.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+  private final ImmuClient client;
+
+  private final Executor verificationExecutor;
+
+  private final Coalescer<PendingSafeSet> coalescer;
+
+  private final AtomicLong consistencyChecks = new AtomicLong();
+
+  private GroupCommitWriter(GroupCommitWriterBuilder builder) {
+    this.client = builder.client;
+    this.verificationExecutor = builder.verificationExecutor;
+    this.coalescer =
+        new Coalescer<>(
+            builder.maxGroupSize, builder.maxDelayMillis, "immudb4j-group-commit", this::commit);
+  }
+
+  public static GroupCommitWriterBuilder newBuilder(ImmuClient client) {
+    return new GroupCommitWriterBuilder(client);
+  }
+
+  public CompletableFuture<Long> safeSet(String key, byte[] value) {
+    return safeSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Long> safeSet(byte[] key, byte[] value) {
+    return safeRawSet(ByteString.copyFrom(key), ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Long> safeSet(ByteString key, ByteString value) {
+    return safeRawSet(key, ImmuClient.wrapContent(value));
+  }
+
+  public CompletableFuture<Long> safeRawSet(String key, byte[] value) {
+    return safeRawSet(key.getBytes(Charsets.UTF_8), value);
+  }
+
+  public CompletableFuture<Long> safeRawSet(byte[] key, byte[] value) {
+    return safeRawSet(ByteString.copyFrom(key), ByteString.copyFrom(value));
+  }
+
+  public CompletableFuture<Long> safeRawSet(ByteString key, ByteString value) {
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
+
+    PendingSafeSet pending = new PendingSafeSet(kv);
+
+    if (!coalescer.add(pending)) {
+      pending.future.completeExceptionally(new IllegalStateException("Group commit writer closed"));
+    }
+
+    return pending.future;
+  }
+
+  /** Commits pending writes without waiting for the group to fill up. */
+  public void flush() {
+    coalescer.flush();
+  }
+
+  /** Commits pending writes and stops accepting new ones. */
+  @Override
+  public void close() {
+    coalescer.close();
+  }
+
+  private void commit(List<PendingSafeSet> group) {
+    String database = client.getActiveDatabase();
+
+    client
+        .async()
+        .root()
+        .thenAccept(root -> dispatch(group, database, root))
+        .exceptionally(
+            t -> {
+              for (PendingSafeSet pending : group) {
+                pending.future.completeExceptionally(t);
+              }
+              return null;
+            });
+  }
+
+  private void dispatch(List<PendingSafeSet> group, String database, Root root) {
+    ImmudbProto.Index rootIndex = ImmudbProto.Index.newBuilder().setIndex(root.getIndex()).build();
+
+    CompletableFuture<?>[] included = new CompletableFuture<?>[group.size()];
+
+    for (int i = 0; i < group.size(); i++) {
+      PendingSafeSet pending = group.get(i);
+
+      ImmudbProto.SafeSetOptions sOpts =
+          ImmudbProto.SafeSetOptions.newBuilder().setKv(pending.kv).setRootIndex(rootIndex).build();
+
+      included[i] =
+          AsyncImmuClient.toCompletableFuture(client.getFutureStub().safeSet(sOpts))
+              .thenAcceptAsync(proof -> pending.verifyInclusion(proof, client.getHasher()), verificationExecutor)
+              .whenComplete(
+                  (v, t) -> {
+                    client.invalidateCachedRead(database, pending.kv.getKey());
+
+                    if (t != null) {
+                      pending.future.completeExceptionally(
+                          t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                    }
+                  });
+    }
+
+    CompletableFuture.allOf(included)
+        .whenCompleteAsync((v, t) -> verifyGroup(group, database, root), verificationExecutor);
+  }
+
+  private void verifyGroup(List<PendingSafeSet> group, String database, Root root) {
+    try {
+      List<PendingSafeSet> included = new ArrayList<>(group.size());
+
+      for (PendingSafeSet pending : group) {
+        // the request or its inclusion proof failed otherwise, its future is already completed
+        if (pending.proof != null) {
+          included.add(pending);
+        }
+      }
+
+      if (included.isEmpty()) {
+        return;
+      }
+
+      ImmudbProto.Proof highest = included.get(0).proof;
+
+      for (PendingSafeSet pending : included) {
+        if (pending.proof.getAt() > highest.getAt()) {
+          highest = pending.proof;
+        }
+      }
+
+      if (root.getIndex() > 0) {
+        try {
+          verifyConsistency(highest, root);
+        } catch (VerificationException e) {
+          fail(included, e);
+          return;
+        }
+      }
+
+      Root verified = new Root(database, highest.getAt(), highest.getRoot().toByteArray());
+
+      client.getRootHolder().setRoot(verified);
+
+      for (PendingSafeSet pending : link(included, verified)) {
+        if (pending.proof.getAt() == highest.getAt()) {
+          // its inclusion is already proven in a tree of the same size, which must be the same tree
+          if (pending.proof.getRoot().equals(highest.getRoot())) {
+            pending.future.complete(pending.proof.getIndex());
+          } else {
+            pending.future.completeExceptionally(
+                new VerificationException("Consistency proof does not verify!"));
+          }
+        } else {
+          verifyIncludedAt(pending, verified);
+        }
+      }
+    } catch (RuntimeException e) {
+      fail(group, e);
+    }
+  }
+
+  /**
+   * Completes the writes whose entry is proven to be in the tree of the given verified root, and
+   * returns the other ones.
+   *
+   * <p>The entries of the group are folded in order of index into the frontier of the tree of the
+   * first one: as long as no foreign entry was appended in between, each matching root proves that
+   * the tree of an entry extends the tree of the previous one, and the last of these trees is the
+   * one of the verified root. Entries of a run broken by a foreign entry are returned.
+   */
+  private List<PendingSafeSet> link(List<PendingSafeSet> included, Root verified) {
+    List<PendingSafeSet> sorted = new ArrayList<>(included);
+    sorted.sort(Comparator.comparingLong(pending -> pending.proof.getIndex()));
+
+    List<PendingSafeSet> unlinked = new ArrayList<>();
+    List<PendingSafeSet> run = new ArrayList<>();
+
+    Frontier frontier = null;
+
+    for (PendingSafeSet pending : sorted) {
+      if (frontier != null) {
+        try {
+          frontier = CryptoUtils.verifyAppend(pending.proof, pending.item(), frontier, client.getHasher());
+          run.add(pending);
+          continue;
+        } catch (VerificationException e) {
+          // a foreign entry was appended in between, the run is broken
+        }
+      }
+
+      unlinked.addAll(run);
+      run.clear();
+
+      frontier = frontierOf(pending.proof);
+
+      if (frontier != null) {
+        run.add(pending);
+      } else {
+        unlinked.add(pending);
+      }
+    }
+
+    if (frontier != null && frontier.isAt(verified)) {
+      for (PendingSafeSet pending : run) {
+        pending.future.complete(pending.proof.getIndex());
+      }
+    } else {
+      unlinked.addAll(run);
+    }
+
+    return unlinked;
+  }
+
+  private Frontier frontierOf(ImmudbProto.Proof proof) {
+    // only the proof of the last entry of a tree holds the roots of the subtrees on its left
+    if (proof.getIndex() != proof.getAt() || proof.getInclusionPathCount() != Long.bitCount(proof.getAt())) {
+      return null;
+    }
+
+    return Frontier.of(proof, client.getHasher());
+  }
+
+  /**
+   * Proves the entry of a write to be in the tree of the given verified root, with a proof fetched
+   * at that root.
+   */
+  private void verifyIncludedAt(PendingSafeSet pending, Root verified) {
+    long index = pending.proof.getIndex();
+
+    ImmudbProto.SafeIndexOptions sOpts =
+        ImmudbProto.SafeIndexOptions.newBuilder()
+            .setIndex(index)
+            .setRootIndex(ImmudbProto.Index.newBuilder().setIndex(verified.getIndex()).build())
+            .build();
+
+    AsyncImmuClient.toCompletableFuture(client.getFutureStub().bySafeIndex(sOpts))
+        .thenAcceptAsync(
+            safeItem -> {
+              ImmudbProto.Proof proof = safeItem.getProof();
+
+              try {
+                if (proof.getIndex() != index) {
+                  throw new VerificationException("Proof does not verify!");
+                }
+
+                CryptoUtils.verifyInclusion(proof, pending.item(), client.getHasher());
+                verifyConsistency(proof, verified);
+              } catch (VerificationException e) {
+                throw new CompletionException(e);
+              }
+            },
+            verificationExecutor)
+        .whenComplete(
+            (v, t) -> {
+              if (t != null) {
+                pending.future.completeExceptionally(
+                    t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+              } else {
+                pending.future.complete(index);
+              }
+            });
+  }
+
+  private void verifyConsistency(ImmudbProto.Proof proof, Root root) throws VerificationException {
+    consistencyChecks.incrementAndGet();
+    CryptoUtils.verifyConsistency(proof, root, client.getHasher());
+  }
+
+  /** Number of consistency proofs checked so far. */
+  long getConsistencyChecks() {
+    return consistencyChecks.get();
+  }
+
+  private static void fail(List<PendingSafeSet> writes, Throwable t) {
+    for (PendingSafeSet pending : writes) {
+      pending.future.completeExceptionally(t);
+    }
+  }
+
+  private static class PendingSafeSet {
+
+    private final ImmudbProto.KeyValue kv;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    private volatile ImmudbProto.Item item;
+    private volatile ImmudbProto.Proof proof;
+
+    PendingSafeSet(ImmudbProto.KeyValue kv) {
+      this.kv = kv;
+    }
+
+    void verifyInclusion(ImmudbProto.Proof proof, Hasher hasher) {
+      ImmudbProto.Item item =
+          ImmudbProto.Item.newBuilder()
+              .setIndex(proof.getIndex())
+              .setKey(kv.getKey())
+              .setValue(kv.getValue())
+              .build();
+
+      try {
+        CryptoUtils.verifyInclusion(proof, item, hasher);
+        this.item = item;
+      } catch (VerificationException e) {
+        throw new CompletionException(e);
+      }
+
+      this.proof = proof;
+    }
+
+    ImmudbProto.Item item() {
+      return item;
+    }
+  }
+
+  public static class GroupCommitWriterBuilder {
+
+    private final ImmuClient client;
+
+    private int maxGroupSize;
+
+    private long maxDelayMillis;
+
+    private Executor verificationExecutor;
+
+    private GroupCommitWriterBuilder(ImmuClient client) {
+      this.client = client;
+      this.maxGroupSize = 100;
+      this.maxDelayMillis = 2;
+      this.verificationExecutor = ForkJoinPool.commonPool();
+    }
+
+    public GroupCommitWriter build() {
+      return new GroupCommitWriter(this);
+    }
+
+    public int getMaxGroupSize() {
+      return maxGroupSize;
+    }
+
+    public long getMaxDelayMillis() {
+      return maxDelayMillis;
+    }
+
+    public Executor getVerificationExecutor() {
+      return verificationExecutor;
+    }
+
+    public GroupCommitWriterBuilder setMaxGroupSize(int maxGroupSize) {
+      this.maxGroupSize = maxGroupSize;
+      return this;
+    }
+
+    public GroupCommitWriterBuilder setMaxDelayMillis(long maxDelayMillis) {
+      this.maxDelayMillis = maxDelayMillis;
+      return this;
+    }
+
+    public GroupCommitWriterBuilder setVerificationExecutor(Executor verificationExecutor) {
+      this.verificationExecutor = verificationExecutor;
+      return this;
+    }
+  }
+}
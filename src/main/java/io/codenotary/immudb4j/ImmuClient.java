@@ -18,19 +18,33 @@ package io.codenotary.immudb4j;
 import com.google.common.base.Charsets;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
 import io.codenotary.immudb.ImmuServiceGrpc;
 import io.codenotary.immudb.ImmudbProto;
 import io.codenotary.immudb4j.crypto.CryptoUtils;
+import io.codenotary.immudb4j.crypto.Frontier;
+import io.codenotary.immudb4j.crypto.Hasher;
 import io.codenotary.immudb4j.crypto.Root;
 import io.codenotary.immudb4j.crypto.VerificationException;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
-import io.grpc.Metadata;
-import io.grpc.stub.MetadataUtils;
+import io.grpc.netty.NegotiationType;
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.EventLoopGroup;
+import org.reactivestreams.Publisher;
+import java.io.Flushable;
+import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * immudb client using grpc.
@@ -39,56 +53,186 @@ import java.util.List;
  */
 public class ImmuClient {
 
-  private static final String AUTH_HEADER = "authorization";
+  private ManagedChannel[] channels;
+  private ImmuServiceGrpc.ImmuServiceBlockingStub[] stubs;
+  private ImmuServiceGrpc.ImmuServiceFutureStub[] futureStubs;
+  private ImmuServiceGrpc.ImmuServiceStub[] asyncStubs;
 
-  private ManagedChannel channel;
-  private ImmuServiceGrpc.ImmuServiceBlockingStub stub;
+  private final AtomicInteger nextChannel = new AtomicInteger();
+
+  // event loop group created for the native transport when none was shared through the builder
+  private EventLoopGroup ownedEventLoopGroup;
 
   private boolean withAuthToken;
-  private String authToken;
+  private final AuthInterceptor authInterceptor = new AuthInterceptor();
 
   private RootHolder rootHolder;
 
+  private int scanPageSize;
+
+  private int maxBatchSize;
+
+  private int maxBatchBytes;
+
+  private Hasher hasher;
+
+  private VerifiedReadCache verifiedReadCache;
+
+  // frontier of the latest tree proven by a write of this client, by database
+  private final ConcurrentMap<String, Frontier> frontiers = new ConcurrentHashMap<>();
+
   private String activeDatabase = "defaultdb";
 
+  private AsyncImmuClient asyncClient;
 
   public ImmuClient(ImmuClientBuilder builder) throws NoSuchAlgorithmException {
-    this.stub = createStubFrom(builder);
     this.withAuthToken = builder.isWithAuthToken();
+    createStubsFrom(builder);
     this.rootHolder = builder.getRootHolder();
+    this.scanPageSize = builder.getScanPageSize();
+    this.maxBatchSize = builder.getMaxBatchSize();
+    this.maxBatchBytes = builder.getMaxBatchBytes();
+    this.hasher = builder.getHasher();
+
+    if (builder.getVerifiedReadCacheSize() > 0) {
+      this.verifiedReadCache = new VerifiedReadCache(builder.getVerifiedReadCacheSize());
+    }
+    this.asyncClient = new AsyncImmuClient(this);
   }
 
   public static ImmuClientBuilder newBuilder() {
     return new ImmuClientBuilder();
   }
 
-  private ImmuServiceGrpc.ImmuServiceBlockingStub createStubFrom(ImmuClientBuilder builder) {
-    channel =
-        ManagedChannelBuilder.forAddress(builder.getServerUrl(), builder.getServerPort())
-            .usePlaintext()
-            .build();
-    return ImmuServiceGrpc.newBlockingStub(channel);
+  private void createStubsFrom(ImmuClientBuilder builder) {
+    if (builder.getChannel() != null) {
+      channels = new ManagedChannel[] {builder.getChannel()};
+    } else {
+      channels = new ManagedChannel[builder.getChannelPoolSize()];
+
+      for (int i = 0; i < channels.length; i++) {
+        channels[i] = buildChannel(builder);
+      }
+    }
+
+    stubs = new ImmuServiceGrpc.ImmuServiceBlockingStub[channels.length];
+    futureStubs = new ImmuServiceGrpc.ImmuServiceFutureStub[channels.length];
+    asyncStubs = new ImmuServiceGrpc.ImmuServiceStub[channels.length];
+
+    for (int i = 0; i < channels.length; i++) {
+      // the interceptor reads the current token on each call, so stubs are built only once
+      Channel channel =
+          withAuthToken ? ClientInterceptors.intercept(channels[i], authInterceptor) : channels[i];
+
+      stubs[i] = ImmuServiceGrpc.newBlockingStub(channel);
+      futureStubs[i] = ImmuServiceGrpc.newFutureStub(channel);
+      asyncStubs[i] = ImmuServiceGrpc.newStub(channel);
+    }
+  }
+
+  private ManagedChannel buildChannel(ImmuClientBuilder builder) {
+    NettyChannelBuilder channelBuilder =
+        NettyChannelBuilder.forAddress(builder.getServerUrl(), builder.getServerPort())
+            .negotiationType(NegotiationType.PLAINTEXT)
+            .flowControlWindow(builder.getFlowControlWindow())
+            .maxInboundMessageSize(builder.getMaxInboundMessageSize());
+
+    EventLoopGroup eventLoopGroup = builder.getEventLoopGroup();
+
+    if (eventLoopGroup == null && builder.isUseNativeTransport() && NativeTransport.isAvailable()) {
+      if (ownedEventLoopGroup == null) {
+        ownedEventLoopGroup = NativeTransport.newEventLoopGroup();
+      }
+      eventLoopGroup = ownedEventLoopGroup;
+    }
+
+    if (eventLoopGroup != null) {
+      channelBuilder
+          .eventLoopGroup(eventLoopGroup)
+          .channelType(NativeTransport.channelType(eventLoopGroup));
+    }
+
+    if (builder.isDirectExecutor()) {
+      channelBuilder.directExecutor();
+    } else if (builder.getExecutor() != null) {
+      channelBuilder.executor(builder.getExecutor());
+    }
+
+    return channelBuilder.build();
   }
 
   public synchronized void shutdown() {
-    channel.shutdown();
-    channel = null;
+    // persists roots whose writes are deferred by the root holder
+    if (rootHolder instanceof Flushable) {
+      try {
+        ((Flushable) rootHolder).flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    for (ManagedChannel channel : channels) {
+      channel.shutdown();
+    }
+    channels = null;
+
+    if (ownedEventLoopGroup != null) {
+      ownedEventLoopGroup.shutdownGracefully();
+      ownedEventLoopGroup = null;
+    }
   }
 
   public synchronized boolean isShutdown() {
-    return channel == null;
+    return channels == null;
   }
 
-  private ImmuServiceGrpc.ImmuServiceBlockingStub getStub() {
-    if (!withAuthToken || authToken == null) {
-      return stub;
+  // round-robin over the channel pool
+  private int nextChannel() {
+    if (stubs.length == 1) {
+      return 0;
     }
 
-    Metadata metadata = new Metadata();
-    metadata.put(
-        Metadata.Key.of(AUTH_HEADER, Metadata.ASCII_STRING_MARSHALLER), "Bearer " + authToken);
+    return (nextChannel.getAndIncrement() & Integer.MAX_VALUE) % stubs.length;
+  }
+
+  private ImmuServiceGrpc.ImmuServiceBlockingStub getStub() {
+    return stubs[nextChannel()];
+  }
+
+  ImmuServiceGrpc.ImmuServiceFutureStub getFutureStub() {
+    return futureStubs[nextChannel()];
+  }
+
+  ImmuServiceGrpc.ImmuServiceStub getAsyncStub() {
+    return asyncStubs[nextChannel()];
+  }
+
+  RootHolder getRootHolder() {
+    return rootHolder;
+  }
+
+  int getMaxBatchSize() {
+    return maxBatchSize;
+  }
 
-    return MetadataUtils.attachHeaders(stub, metadata);
+  int getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  Hasher getHasher() {
+    return hasher;
+  }
+
+  String getActiveDatabase() {
+    return activeDatabase;
+  }
+
+  /**
+   * Returns a non-blocking view of this client. The returned client shares the channel,
+   * the session and the root holder of this client.
+   */
+  public AsyncImmuClient async() {
+    return asyncClient;
   }
 
   public static class ImmuClientBuilder {
@@ -101,11 +245,46 @@ public class ImmuClient {
 
     private RootHolder rootHolder;
 
+    private int scanPageSize;
+
+    private int maxBatchSize;
+
+    private int maxBatchBytes;
+
+    private Hasher hasher;
+
+    private int verifiedReadCacheSize;
+
+    private ManagedChannel channel;
+
+    private int channelPoolSize;
+
+    private boolean useNativeTransport;
+
+    private EventLoopGroup eventLoopGroup;
+
+    private Executor executor;
+
+    private boolean directExecutor;
+
+    private int flowControlWindow;
+
+    private int maxInboundMessageSize;
+
     private ImmuClientBuilder() {
       this.serverUrl = "localhost";
       this.serverPort = 3322;
-      this.rootHolder = new SerializableRootHolder();
+      // roots are also advanced from grpc threads by the async client and the writers
+      this.rootHolder = new ConcurrentRootHolder();
       this.withAuthToken = true;
+      this.scanPageSize = 256;
+      // calls are not split unless asked to, so that they stay atomic
+      this.maxBatchSize = Integer.MAX_VALUE;
+      this.maxBatchBytes = Integer.MAX_VALUE;
+      this.hasher = Hasher.jca();
+      this.channelPoolSize = 1;
+      this.flowControlWindow = NettyChannelBuilder.DEFAULT_FLOW_CONTROL_WINDOW;
+      this.maxInboundMessageSize = 4 * 1024 * 1024;
     }
 
     public ImmuClient build() {
@@ -132,6 +311,58 @@ public class ImmuClient {
       return rootHolder;
     }
 
+    public int getScanPageSize() {
+      return scanPageSize;
+    }
+
+    public int getMaxBatchSize() {
+      return maxBatchSize;
+    }
+
+    public int getMaxBatchBytes() {
+      return maxBatchBytes;
+    }
+
+    public Hasher getHasher() {
+      return hasher;
+    }
+
+    public int getVerifiedReadCacheSize() {
+      return verifiedReadCacheSize;
+    }
+
+    public ManagedChannel getChannel() {
+      return channel;
+    }
+
+    public int getChannelPoolSize() {
+      return channelPoolSize;
+    }
+
+    public boolean isUseNativeTransport() {
+      return useNativeTransport;
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+      return eventLoopGroup;
+    }
+
+    public Executor getExecutor() {
+      return executor;
+    }
+
+    public boolean isDirectExecutor() {
+      return directExecutor;
+    }
+
+    public int getFlowControlWindow() {
+      return flowControlWindow;
+    }
+
+    public int getMaxInboundMessageSize() {
+      return maxInboundMessageSize;
+    }
+
     public ImmuClientBuilder setServerUrl(String serverUrl) {
       this.serverUrl = serverUrl;
       return this;
@@ -147,11 +378,157 @@ public class ImmuClient {
       return this;
     }
 
+    /**
+     * Sets the holder of the trusted roots, a {@link ConcurrentRootHolder} by default. The
+     * {@link ImmuClient#async() async} operations, {@link BatchWriter} and {@link GroupCommitWriter} update
+     * it from grpc threads, so it must be thread-safe and ignore roots older than the one it holds,
+     * as the concurrent, file, journal and shared file holders do. {@link SerializableRootHolder}
+     * is neither.
+     */
     public ImmuClientBuilder setRootHolder(RootHolder rootHolder) {
       this.rootHolder = rootHolder;
       return this;
     }
 
+    /**
+     * Uses an already built channel instead of connecting to the server url and port, e.g. an
+     * in-process channel. The channel is shut down along with the client.
+     */
+    public ImmuClientBuilder setChannel(ManagedChannel channel) {
+      this.channel = channel;
+      return this;
+    }
+
+    /**
+     * Sets the number of channels, i.e. of connections, opened to the server. Requests are spread
+     * over them in a round-robin fashion. Ignored when an already built channel is set.
+     */
+    public ImmuClientBuilder setChannelPoolSize(int channelPoolSize) {
+      if (channelPoolSize <= 0) {
+        throw new IllegalArgumentException("Channel pool size must be positive");
+      }
+      this.channelPoolSize = channelPoolSize;
+      return this;
+    }
+
+    /**
+     * Uses the epoll transport when it is available on the running platform, falling back to NIO
+     * otherwise. Ignored when an event loop group is set. The transport is not a transitive
+     * dependency: {@code io.netty:netty-transport-native-epoll} with the {@code linux-x86_64}
+     * classifier has to be added to the application.
+     */
+    public ImmuClientBuilder setUseNativeTransport(boolean useNativeTransport) {
+      this.useNativeTransport = useNativeTransport;
+      return this;
+    }
+
+    /**
+     * Sets an event loop group to be shared among clients, either an {@code EpollEventLoopGroup}
+     * or a {@code NioEventLoopGroup}. The group is owned by the caller and is not shut down along
+     * with the client.
+     */
+    public ImmuClientBuilder setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+      this.eventLoopGroup = eventLoopGroup;
+      return this;
+    }
+
+    /**
+     * Sets the executor running the call callbacks, which may be shared among clients. The
+     * executor is owned by the caller and is not shut down along with the client.
+     */
+    public ImmuClientBuilder setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Runs the call callbacks directly on the transport threads, saving a thread hand-off per
+     * call. Only suitable when callbacks never block.
+     */
+    public ImmuClientBuilder setDirectExecutor(boolean directExecutor) {
+      this.directExecutor = directExecutor;
+      return this;
+    }
+
+    public ImmuClientBuilder setFlowControlWindow(int flowControlWindow) {
+      if (flowControlWindow <= 0) {
+        throw new IllegalArgumentException("Flow control window must be positive");
+      }
+      this.flowControlWindow = flowControlWindow;
+      return this;
+    }
+
+    public ImmuClientBuilder setMaxInboundMessageSize(int maxInboundMessageSize) {
+      if (maxInboundMessageSize <= 0) {
+        throw new IllegalArgumentException("Max inbound message size must be positive");
+      }
+      this.maxInboundMessageSize = maxInboundMessageSize;
+      return this;
+    }
+
+    /**
+     * Sets the source of the SHA-256 digests used to verify proofs, e.g. a specific JCA provider.
+     */
+    public ImmuClientBuilder setHasher(Hasher hasher) {
+      this.hasher = hasher;
+      return this;
+    }
+
+    /**
+     * Sets the number of keys whose verified value is cached by safeGet and safeRawGet, 0 to
+     * disable the cache, which is the default.
+     *
+     * <p>A cached value is served locally while the trusted root has not advanced. Once it has,
+     * the value is revalidated with a safe get proven against the root it was cached at: it is
+     * still served without hashing it again if the key was not written since. Writes made through
+     * this client invalidate the cached values; writes made by other clients are only noticed
+     * once the trusted root advances.
+     */
+    public ImmuClientBuilder setVerifiedReadCacheSize(int verifiedReadCacheSize) {
+      if (verifiedReadCacheSize < 0) {
+        throw new IllegalArgumentException("Verified read cache size must not be negative");
+      }
+      this.verifiedReadCacheSize = verifiedReadCacheSize;
+      return this;
+    }
+
+    /**
+     * Sets the number of items fetched per request by the scan, zScan and iScan publishers.
+     */
+    public ImmuClientBuilder setScanPageSize(int scanPageSize) {
+      if (scanPageSize <= 0) {
+        throw new IllegalArgumentException("Scan page size must be positive");
+      }
+      this.scanPageSize = scanPageSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries sent per request by setAll and getAll. Larger calls are
+     * split into chunks sent concurrently over the channel pool, and are then no longer atomic.
+     * Calls are not split by default.
+     */
+    public ImmuClientBuilder setMaxBatchSize(int maxBatchSize) {
+      if (maxBatchSize <= 0) {
+        throw new IllegalArgumentException("Max batch size must be positive");
+      }
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum encoded size of the entries sent per request by setAll and getAll, which
+     * should stay well below the max message size accepted by the server. As with
+     * {@link #setMaxBatchSize}, split calls are no longer atomic. Calls are not split by default.
+     */
+    public ImmuClientBuilder setMaxBatchBytes(int maxBatchBytes) {
+      if (maxBatchBytes <= 0) {
+        throw new IllegalArgumentException("Max batch bytes must be positive");
+      }
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
   }
 
   public synchronized void login(String username, String password) {
@@ -162,12 +539,12 @@ public class ImmuClient {
             .build();
 
     ImmudbProto.LoginResponse loginResponse = getStub().login(loginRequest);
-    authToken = loginResponse.getToken();
+    authInterceptor.setToken(loginResponse.getToken());
   }
 
   public synchronized void logout() {
     getStub().logout(com.google.protobuf.Empty.getDefaultInstance());
-    authToken = null;
+    authInterceptor.setToken(null);
   }
 
   public Root root() {
@@ -190,7 +567,7 @@ public class ImmuClient {
     ImmudbProto.Database db = ImmudbProto.Database.newBuilder()
             .setDatabasename(database).build();
     ImmudbProto.UseDatabaseReply response = getStub().useDatabase(db);
-    authToken = response.getToken();
+    authInterceptor.setToken(response.getToken());
     activeDatabase = database;
   }
 
@@ -212,11 +589,15 @@ public class ImmuClient {
   }
 
   public void set(byte[] key, byte[] value) {
-    ImmudbProto.Content content = ImmudbProto.Content.newBuilder()
-            .setTimestamp(System.currentTimeMillis() / 1000L)
-            .setPayload(ByteString.copyFrom(value))
-            .build();
-    this.rawSet(key, content.toByteArray());
+    rawSet(ByteString.copyFrom(key), wrapContent(value));
+  }
+
+  /**
+   * Writes the given value without copying it, e.g. when wrapped with
+   * {@code UnsafeByteOperations.unsafeWrap} by a caller handing over its array.
+   */
+  public void set(ByteString key, ByteString value) {
+    rawSet(key, wrapContent(value));
   }
 
   public byte[] get(String key) {
@@ -224,12 +605,7 @@ public class ImmuClient {
   }
 
   public byte[] get(byte[] key) {
-    try {
-      ImmudbProto.Content content = ImmudbProto.Content.parseFrom(rawGet(key));
-      return content.getPayload().toByteArray();
-    } catch (InvalidProtocolBufferException e) {
-      throw new RuntimeException(e);
-    }
+    return unwrapContent(rawGetValue(key)).toByteArray();
   }
 
   public byte[] safeGet(String key) throws VerificationException {
@@ -237,12 +613,7 @@ public class ImmuClient {
   }
 
   public byte[] safeGet(byte[] key) throws VerificationException {
-    try {
-      ImmudbProto.Content content = ImmudbProto.Content.parseFrom(safeRawGet(key, this.root()));
-      return content.getPayload().toByteArray();
-    } catch (InvalidProtocolBufferException e) {
-      throw new RuntimeException(e);
-    }
+    return unwrapContent(safeRawGet(key));
   }
 
   public void safeSet(String key, byte[] value) throws VerificationException {
@@ -250,12 +621,11 @@ public class ImmuClient {
   }
 
   public void safeSet(byte[] key, byte[] value) throws VerificationException {
-    ImmudbProto.Content content = ImmudbProto.Content.newBuilder()
-            .setTimestamp(System.currentTimeMillis() / 1000L)
-            .setPayload(ByteString.copyFrom(value))
-            .build();
+    safeRawSet(ByteString.copyFrom(key), wrapContent(value), this.root());
+  }
 
-    safeRawSet(key, content.toByteArray(), this.root());
+  public void safeSet(ByteString key, ByteString value) throws VerificationException {
+    safeRawSet(key, wrapContent(value), this.root());
   }
 
   public void rawSet(String key, byte[] value) {
@@ -263,13 +633,15 @@ public class ImmuClient {
   }
 
   public void rawSet(byte[] key, byte[] value) {
-    ImmudbProto.KeyValue kv =
-        ImmudbProto.KeyValue.newBuilder()
-            .setKey(ByteString.copyFrom(key))
-            .setValue(ByteString.copyFrom(value))
-            .build();
+    rawSet(ByteString.copyFrom(key), ByteString.copyFrom(value));
+  }
+
+  public void rawSet(ByteString key, ByteString value) {
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
 
     getStub().set(kv);
+
+    invalidateCachedRead(activeDatabase, kv.getKey());
   }
 
   public byte[] rawGet(String key) {
@@ -277,10 +649,13 @@ public class ImmuClient {
   }
 
   public byte[] rawGet(byte[] key) {
+    return rawGetValue(key).toByteArray();
+  }
+
+  private ByteString rawGetValue(byte[] key) {
     ImmudbProto.Key k = ImmudbProto.Key.newBuilder().setKey(ByteString.copyFrom(key)).build();
 
-    ImmudbProto.Item item = getStub().get(k);
-    return item.getValue().toByteArray();
+    return getStub().get(k).getValue();
   }
 
   public byte[] safeRawGet(String key) throws VerificationException {
@@ -288,10 +663,65 @@ public class ImmuClient {
   }
 
   public byte[] safeRawGet(byte[] key) throws VerificationException {
-    return safeRawGet(key, this.root());
+    Root root = this.root();
+
+    if (verifiedReadCache != null) {
+      byte[] value = cachedRawGet(key, root);
+
+      if (value != null) {
+        return value;
+      }
+    }
+
+    return safeRawGet(key, root);
+  }
+
+  // serves a verified read from the cache, revalidating it if the trusted root advanced since
+  private byte[] cachedRawGet(byte[] key, Root root) throws VerificationException {
+    ByteString k = ByteString.copyFrom(key);
+
+    long generation = verifiedReadCache.generation();
+    VerifiedReadCache.Entry entry = verifiedReadCache.get(activeDatabase, k);
+
+    if (entry == null) {
+      return null;
+    }
+
+    if (entry.getRootIndex() == root.getIndex()) {
+      return entry.getValue();
+    }
+
+    // the item is proven again, with a consistency proof against the root it was cached at
+    ImmudbProto.SafeGetOptions sOpts =
+        ImmudbProto.SafeGetOptions.newBuilder()
+            .setKey(k)
+            .setRootIndex(ImmudbProto.Index.newBuilder().setIndex(entry.getRootIndex()).build())
+            .build();
+
+    ImmudbProto.SafeItem safeItem = getStub().safeGet(sOpts);
+
+    ImmudbProto.Proof proof = safeItem.getProof();
+
+    if (safeItem.getItem().getIndex() != entry.getItemIndex()
+        || proof.getIndex() != entry.getItemIndex()
+        || !proof.getLeaf().equals(entry.getLeaf())) {
+      // the key was written since
+      return null;
+    }
+
+    CryptoUtils.verifyInclusion(proof, hasher);
+    CryptoUtils.verifyConsistency(proof, entry.getRoot(activeDatabase), hasher);
+
+    if (proof.getAt() == root.getIndex() && proof.getRoot().equals(ByteString.copyFrom(root.getDigest()))) {
+      verifiedReadCache.put(activeDatabase, k, entry.provenAt(root), generation);
+    }
+
+    return entry.getValue();
   }
 
   public byte[] safeRawGet(byte[] key, Root root) throws VerificationException {
+    long generation = verifiedReadCache == null ? 0 : verifiedReadCache.generation();
+
     ImmudbProto.Index index = ImmudbProto.Index.newBuilder().setIndex(root.getIndex()).build();
 
     ImmudbProto.SafeGetOptions sOpts =
@@ -304,11 +734,26 @@ public class ImmuClient {
 
     ImmudbProto.Proof proof = safeItem.getProof();
 
-    CryptoUtils.verify(proof, safeItem.getItem(), root);
+    CryptoUtils.verify(proof, safeItem.getItem(), root, hasher);
 
     rootHolder.setRoot(new Root(activeDatabase, proof.getAt(), proof.getRoot().toByteArray()));
 
-    return safeItem.getItem().getValue().toByteArray();
+    byte[] value = safeItem.getItem().getValue().toByteArray();
+
+    if (verifiedReadCache != null) {
+      verifiedReadCache.put(
+          activeDatabase,
+          safeItem.getItem().getKey(),
+          new VerifiedReadCache.Entry(
+              value.clone(),
+              safeItem.getItem().getIndex(),
+              proof.getLeaf(),
+              proof.getAt(),
+              proof.getRoot().toByteArray()),
+          generation);
+    }
+
+    return value;
   }
 
   public void safeRawSet(String key, byte[] value) throws VerificationException {
@@ -320,11 +765,15 @@ public class ImmuClient {
   }
 
   public void safeRawSet(byte[] key, byte[] value, Root root) throws VerificationException {
-    ImmudbProto.KeyValue kv =
-        ImmudbProto.KeyValue.newBuilder()
-            .setKey(ByteString.copyFrom(key))
-            .setValue(ByteString.copyFrom(value))
-            .build();
+    safeRawSet(ByteString.copyFrom(key), ByteString.copyFrom(value), root);
+  }
+
+  public void safeRawSet(ByteString key, ByteString value) throws VerificationException {
+    safeRawSet(key, value, this.root());
+  }
+
+  public void safeRawSet(ByteString key, ByteString value, Root root) throws VerificationException {
+    ImmudbProto.KeyValue kv = ImmudbProto.KeyValue.newBuilder().setKey(key).setValue(value).build();
 
     ImmudbProto.SafeSetOptions sOpts =
         ImmudbProto.SafeSetOptions.newBuilder()
@@ -337,43 +786,86 @@ public class ImmuClient {
     ImmudbProto.Item item =
         ImmudbProto.Item.newBuilder()
             .setIndex(proof.getIndex())
-            .setKey(ByteString.copyFrom(key))
-            .setValue(ByteString.copyFrom(value))
+            .setKey(key)
+            .setValue(value)
             .build();
 
-    CryptoUtils.verify(proof, item, root);
+    verifyWrite(activeDatabase, proof, item, root);
 
     rootHolder.setRoot(new Root(activeDatabase, proof.getAt(), proof.getRoot().toByteArray()));
+
+    invalidateCachedRead(activeDatabase, kv.getKey());
+  }
+
+  /**
+   * Verifies the proof of an item written by this client. When the item was appended right after
+   * the trusted root and the frontier of that tree is known, its leaf is just folded into the
+   * frontier; otherwise the proof paths are verified and, if the item is the last leaf of the
+   * proven tree, the frontier is taken from its inclusion path.
+   */
+  void verifyWrite(String database, ImmudbProto.Proof proof, ImmudbProto.Item item, Root root)
+      throws VerificationException {
+    Frontier frontier = frontiers.get(database);
+    Frontier proven = null;
+
+    if (frontier != null && frontier.isAt(root) && proof.getAt() == frontier.size()) {
+      proven = CryptoUtils.verifyAppend(proof, item, frontier, hasher);
+    } else {
+      CryptoUtils.verify(proof, item, root, hasher);
+
+      if (proof.getIndex() == proof.getAt()) {
+        proven = Frontier.of(proof, hasher);
+      }
+    }
+
+    if (proven != null) {
+      frontiers.merge(database, proven, (a, b) -> a.size() >= b.size() ? a : b);
+    }
   }
 
   public void setAll(KVList kvList) {
-    KVList.KVListBuilder svListBuilder = KVList.newBuilder();
+    KVList.KVListBuilder svListBuilder = KVList.newBuilder().withExpectedSize(kvList.entries().size());
 
     for (KV kv : kvList.entries()) {
-      ImmudbProto.Content content = ImmudbProto.Content.newBuilder()
-              .setTimestamp(System.currentTimeMillis() / 1000L)
-              .setPayload(ByteString.copyFrom(kv.getValue()))
-              .build();
-      svListBuilder.add(kv.getKey(), content.toByteArray());
+      svListBuilder.add(new ByteStringKV(kv.getKeyBytes(), wrapContent(kv.getValueBytes())));
     }
 
     rawSetAll(svListBuilder.build());
   }
 
+  /**
+   * Writes the given entries atomically, unless the client was built with a max batch size or
+   * max batch bytes they exceed. They are then split into chunks sent concurrently, so entries of
+   * different chunks may be assigned indexes in any order; when a chunk fails, the other ones may
+   * still have been written.
+   */
   public void rawSetAll(KVList kvList) {
-    ImmudbProto.KVList.Builder builder = ImmudbProto.KVList.newBuilder();
+    List<ImmudbProto.KVList> chunks = BatchChunks.of(kvList, maxBatchSize, maxBatchBytes);
 
-    for (KV kv : kvList.entries()) {
-      ImmudbProto.KeyValue skv =
-              ImmudbProto.KeyValue.newBuilder()
-                      .setKey(ByteString.copyFrom(kv.getKey()))
-                      .setValue(ByteString.copyFrom(kv.getValue()))
-                      .build();
+    if (chunks.size() > 1) {
+      joinUnchecked(asyncClient.rawSetAll(chunks));
+      return;
+    }
 
-      builder.addKVs(skv);
+    ImmudbProto.KVList kvs = chunks.get(0);
+
+    getStub().setBatch(kvs);
+
+    invalidateCachedReads(activeDatabase, kvs);
+  }
+
+  void invalidateCachedRead(String database, ByteString key) {
+    if (verifiedReadCache != null) {
+      verifiedReadCache.invalidate(database, key);
     }
+  }
 
-    getStub().setBatch(builder.build());
+  void invalidateCachedReads(String database, ImmudbProto.KVList kvs) {
+    if (verifiedReadCache != null) {
+      for (ImmudbProto.KeyValue kv : kvs.getKVsList()) {
+        verifiedReadCache.invalidate(database, kv.getKey());
+      }
+    }
   }
 
   public List<KV> getAll(List<?> keyList) {
@@ -381,18 +873,164 @@ public class ImmuClient {
     List<KV>  kvs = new ArrayList<>(rawKVs.size());
 
     for (KV rawKV : rawKVs) {
-      try {
-        ImmudbProto.Content content = ImmudbProto.Content.parseFrom(rawKV.getValue());
-        kvs.add(new KVPair(rawKV.getKey(), content.getPayload().toByteArray()));
-      } catch (InvalidProtocolBufferException e) {
-        throw new RuntimeException(e);
-      }
+      kvs.add(new ByteStringKV(rawKV.getKeyBytes(), unwrapContent(rawKV.getValueBytes())));
     }
 
     return kvs;
   }
 
   public List<KV> rawGetAll(List<?> keyList) {
+    List<byte[]> kList = toByteKeys(keyList);
+
+    if (kList.size() == 0) {
+      return new ArrayList<>();
+    }
+
+    return rawGetAllFrom(kList);
+  }
+
+  private List<KV> rawGetAllFrom(List<byte[]> keyList) {
+    List<ImmudbProto.KeyList> chunks = BatchChunks.of(keyList, maxBatchSize, maxBatchBytes);
+
+    if (chunks.size() > 1) {
+      return joinUnchecked(asyncClient.rawGetChunks(chunks));
+    }
+
+    ImmudbProto.ItemList res = getStub().getBatch(chunks.get(0));
+
+    List<KV> result = new ArrayList<>(res.getItemsCount());
+
+    for (ImmudbProto.Item item : res.getItemsList()) {
+      result.add(new ByteStringKV(item.getKey(), item.getValue()));
+    }
+
+    return result;
+  }
+
+  /**
+   * Verified counterpart of {@link #getAll(List)}. The keys are read concurrently against a
+   * single trusted root, see {@link AsyncImmuClient#safeRawGetAll(List)}.
+   */
+  public List<KV> safeGetAll(List<?> keyList) throws VerificationException {
+    return join(asyncClient.safeGetAll(keyList));
+  }
+
+  public List<KV> safeRawGetAll(List<?> keyList) throws VerificationException {
+    return join(asyncClient.safeRawGetAll(keyList));
+  }
+
+  // waits for a call of the async client, rethrowing the failure it completed with
+  private static <T> T join(CompletableFuture<T> future) throws VerificationException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof VerificationException) {
+        throw (VerificationException) e.getCause();
+      }
+      throw unwrap(e);
+    }
+  }
+
+  private static <T> T joinUnchecked(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static RuntimeException unwrap(CompletionException e) {
+    if (e.getCause() instanceof RuntimeException) {
+      return (RuntimeException) e.getCause();
+    }
+    return e;
+  }
+
+  /**
+   * Lazily scans the entries whose key starts with the given prefix. Pages are only fetched
+   * as the subscriber requests items.
+   */
+  public Publisher<KV> scan(String prefix) {
+    return scan(prefix.getBytes(Charsets.UTF_8));
+  }
+
+  public Publisher<KV> scan(byte[] prefix) {
+    return scan(prefix, false, false);
+  }
+
+  public Publisher<KV> scan(byte[] prefix, boolean reverse, boolean deep) {
+    return PagedPublisher.scan(this::getStub, prefix, reverse, deep, scanPageSize, ImmuClient::decodeContentItem);
+  }
+
+  public Publisher<KV> rawScan(byte[] prefix, boolean reverse, boolean deep) {
+    return PagedPublisher.scan(this::getStub, prefix, reverse, deep, scanPageSize, ImmuClient::decodeRawItem);
+  }
+
+  /**
+   * Lazily scans the members of a sorted set. Pages are only fetched as the subscriber requests
+   * items.
+   */
+  public Publisher<KV> zScan(String set) {
+    return zScan(set.getBytes(Charsets.UTF_8));
+  }
+
+  public Publisher<KV> zScan(byte[] set) {
+    return zScan(set, false);
+  }
+
+  public Publisher<KV> zScan(byte[] set, boolean reverse) {
+    return PagedPublisher.zScan(this::getStub, set, reverse, scanPageSize, ImmuClient::decodeContentItem);
+  }
+
+  public Publisher<KV> rawZScan(byte[] set, boolean reverse) {
+    return PagedPublisher.zScan(this::getStub, set, reverse, scanPageSize, ImmuClient::decodeRawItem);
+  }
+
+  /**
+   * Lazily scans all the entries by insertion index. Pages are only fetched as the subscriber
+   * requests items.
+   */
+  public Publisher<KV> iScan() {
+    return PagedPublisher.iScan(this::getStub, scanPageSize, ImmuClient::decodeContentItem);
+  }
+
+  public Publisher<KV> rawIScan() {
+    return PagedPublisher.iScan(this::getStub, scanPageSize, ImmuClient::decodeRawItem);
+  }
+
+  /**
+   * Publishes every value the given key has had. The history is retrieved with a single request
+   * but entries are only decoded as the subscriber requests them.
+   */
+  public Publisher<KV> history(String key) {
+    return history(key.getBytes(Charsets.UTF_8));
+  }
+
+  public Publisher<KV> history(byte[] key) {
+    return PagedPublisher.history(this::getStub, key, ImmuClient::decodeContentItem);
+  }
+
+  public Publisher<KV> rawHistory(byte[] key) {
+    return PagedPublisher.history(this::getStub, key, ImmuClient::decodeRawItem);
+  }
+
+  /**
+   * Streams the raw content of the active database. Messages are requested from the server
+   * only as fast as the subscriber consumes them.
+   */
+  public Publisher<KV> dump() {
+    return new DumpPublisher(this::getAsyncStub);
+  }
+
+  private static KV decodeRawItem(ImmudbProto.Item item) {
+    return new ByteStringKV(item.getKey(), item.getValue());
+  }
+
+  private static KV decodeContentItem(ImmudbProto.Item item) {
+    return new ByteStringKV(item.getKey(), unwrapContent(item.getValue()));
+  }
+
+  static List<byte[]> toByteKeys(List<?> keyList) {
     if (keyList == null) {
       throw new RuntimeException("Illegal argument");
     }
@@ -408,34 +1046,57 @@ public class ImmuClient {
         kList.add(((String)key).getBytes(Charsets.UTF_8));
       }
 
-      return rawGetAllFrom(kList);
+      return kList;
     }
 
     if (keyList.get(0) instanceof byte[]) {
-      return rawGetAllFrom((List<byte[]>)keyList);
+      return (List<byte[]>)keyList;
     }
 
     throw new RuntimeException("Illegal argument");
   }
 
-  private List<KV> rawGetAllFrom(List<byte[]> keyList) {
+  static ImmudbProto.KVList buildKVList(KVList kvList) {
+    ImmudbProto.KVList.Builder builder = ImmudbProto.KVList.newBuilder();
 
-    ImmudbProto.KeyList.Builder builder = ImmudbProto.KeyList.newBuilder();
+    for (KV kv : kvList.entries()) {
+      ImmudbProto.KeyValue skv =
+              ImmudbProto.KeyValue.newBuilder()
+                      .setKey(kv.getKeyBytes())
+                      .setValue(kv.getValueBytes())
+                      .build();
 
-    for (byte[] key : keyList) {
-      ImmudbProto.Key k = ImmudbProto.Key.newBuilder().setKey(ByteString.copyFrom(key)).build();
-      builder.addKeys(k);
+      builder.addKVs(skv);
     }
 
-    ImmudbProto.ItemList res = getStub().getBatch(builder.build());
+    return builder.build();
+  }
 
-    List<KV> result = new ArrayList<>(res.getItemsCount());
+  // the value is only read while the content is serialized, so it does not need to be copied
+  static ByteString wrapContent(byte[] value) {
+    return wrapContent(UnsafeByteOperations.unsafeWrap(value));
+  }
 
-    for (ImmudbProto.Item item : res.getItemsList()) {
-      KV kv = new KVPair(item.getKey().toByteArray(), item.getValue().toByteArray());
-      result.add(kv);
-    }
+  static ByteString wrapContent(ByteString value) {
+    ImmudbProto.Content content = ImmudbProto.Content.newBuilder()
+            .setTimestamp(System.currentTimeMillis() / 1000L)
+            .setPayload(value)
+            .build();
+    return content.toByteString();
+  }
 
-    return result;
+  static byte[] unwrapContent(byte[] rawValue) {
+    return unwrapContent(UnsafeByteOperations.unsafeWrap(rawValue)).toByteArray();
+  }
+
+  // the returned payload aliases the given raw value instead of being copied out of it
+  static ByteString unwrapContent(ByteString rawValue) {
+    try {
+      CodedInputStream input = rawValue.newCodedInput();
+      input.enableAliasing(true);
+      return ImmudbProto.Content.parseFrom(input).getPayload();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 }
@@ -0,0 +1,294 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Root holder persisting roots into an append-only, memory-mapped journal.
+ *
+ * <p>The journal is preallocated and each root advance appends a single fixed-size record, as
+ * laid out by {@link RootRecords}.
+ *
+ * <p>When the journal is full it is compacted, i.e. rewritten with the latest root of each
+ * database and atomically moved over the previous one. On open, records are replayed until the
+ * first empty or corrupted one, so a record torn by a crash is discarded and overwritten.
+ *
+ * <p>Reads never block, root advances are serialized.
+ */
+public class JournalRootHolder implements RootHolder, Flushable, Closeable {
+
+  private static final int MAGIC = 0x494d524a; // "IMRJ"
+  private static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+
+  private static final int RECORD_SIZE = RootRecords.RECORD_SIZE;
+
+  private final Path journalFile;
+  private final boolean syncWrites;
+
+  private final ConcurrentRootHolder rootHolder = new ConcurrentRootHolder();
+  private final Set<String> databases = new HashSet<>();
+
+  private final byte[] record = new byte[RECORD_SIZE];
+  private final CRC32 crc = new CRC32();
+
+  private int capacity;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int recordCount;
+
+  private JournalRootHolder(JournalRootHolderBuilder builder) throws IOException {
+    journalFile = Paths.get(builder.getJournalFile());
+    syncWrites = builder.isSyncWrites();
+    capacity = builder.getCapacity();
+
+    Path parent = journalFile.toAbsolutePath().getParent();
+
+    if (parent != null && Files.notExists(parent)) {
+      Files.createDirectories(parent);
+    }
+
+    if (Files.exists(journalFile)) {
+      open(journalFile);
+      recover();
+    } else {
+      compact();
+    }
+  }
+
+  private void open(Path file) throws IOException {
+    channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    long size = channel.size();
+
+    if (size > HEADER_SIZE) {
+      capacity = Math.max(capacity, (int) ((size - HEADER_SIZE) / RECORD_SIZE));
+    }
+
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+  }
+
+  private void recover() {
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new RuntimeException("Inconsistent root journal file");
+    }
+
+    recordCount = 0;
+
+    while (recordCount < capacity) {
+      int offset = HEADER_SIZE + recordCount * RECORD_SIZE;
+
+      buffer.position(offset);
+      buffer.get(record);
+
+      Root root = RootRecords.decode(record, crc);
+
+      if (root == null) {
+        break;
+      }
+
+      rootHolder.setRoot(root);
+      databases.add(root.getDatabase());
+      recordCount++;
+    }
+
+    // clear a possibly torn record so that it is not mistaken for a valid one after a later crash
+    if (recordCount < capacity) {
+      buffer.position(HEADER_SIZE + recordCount * RECORD_SIZE);
+      buffer.put(new byte[RECORD_SIZE]);
+    }
+  }
+
+  @Override
+  public Root getRoot(String database) {
+    return rootHolder.getRoot(database);
+  }
+
+  @Override
+  public synchronized void setRoot(Root root) {
+    Root currentRoot = rootHolder.getRoot(root.getDatabase());
+
+    if (currentRoot != null && currentRoot.getIndex() >= root.getIndex()) {
+      return;
+    }
+
+    RootRecords.encode(root, record, crc);
+
+    if (recordCount < capacity) {
+      append(record);
+      rootHolder.setRoot(root);
+      databases.add(root.getDatabase());
+      return;
+    }
+
+    rootHolder.setRoot(root);
+    databases.add(root.getDatabase());
+
+    try {
+      compact();
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected error " + e);
+    }
+  }
+
+  private void append(byte[] record) {
+    buffer.position(HEADER_SIZE + recordCount * RECORD_SIZE);
+    buffer.put(record);
+    recordCount++;
+
+    if (syncWrites) {
+      buffer.force();
+    }
+  }
+
+  // rewrites the journal with the latest root of each database, leaving at least half of it free
+  private void compact() throws IOException {
+    capacity = Math.max(capacity, 2 * databases.size());
+
+    Path compactedFile = journalFile.resolveSibling(journalFile.getFileName() + ".compact");
+
+    try (FileChannel compactedChannel =
+        FileChannel.open(
+            compactedFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+
+      MappedByteBuffer compacted =
+          compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+
+      compacted.putInt(MAGIC);
+      compacted.putInt(VERSION);
+
+      byte[] compactedRecord = new byte[RECORD_SIZE];
+
+      for (String database : databases) {
+        RootRecords.encode(rootHolder.getRoot(database), compactedRecord, crc);
+        compacted.put(compactedRecord);
+      }
+
+      compacted.force();
+    }
+
+    if (channel != null) {
+      channel.close();
+    }
+
+    Files.move(compactedFile, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+    open(journalFile);
+    recordCount = databases.size();
+  }
+
+  /**
+   * Forces the appended records to the storage device.
+   */
+  @Override
+  public synchronized void flush() {
+    if (channel != null) {
+      buffer.force();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel == null) {
+      return;
+    }
+
+    buffer.force();
+    channel.close();
+    channel = null;
+  }
+
+  public static JournalRootHolderBuilder newBuilder() {
+    return new JournalRootHolderBuilder();
+  }
+
+  public static class JournalRootHolderBuilder {
+
+    private String journalFile;
+
+    private int capacity;
+
+    private boolean syncWrites;
+
+    private JournalRootHolderBuilder() {
+      journalFile = "roots/journal";
+      capacity = 4096;
+    }
+
+    public JournalRootHolder build() throws IOException {
+      return new JournalRootHolder(this);
+    }
+
+    public JournalRootHolderBuilder setJournalFile(String journalFile) {
+      this.journalFile = journalFile;
+      return this;
+    }
+
+    /**
+     * Sets the number of records preallocated in the journal before it gets compacted.
+     */
+    public JournalRootHolderBuilder setCapacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("Capacity must be positive");
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * Forces every appended record to the storage device. Otherwise records are flushed by the
+     * operating system, on compaction and on close.
+     */
+    public JournalRootHolderBuilder setSyncWrites(boolean syncWrites) {
+      this.syncWrites = syncWrites;
+      return this;
+    }
+
+    public String getJournalFile() {
+      return journalFile;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public boolean isSyncWrites() {
+      return syncWrites;
+    }
+  }
+
+}
@@ -15,7 +15,32 @@ limitations under the License.
 */
 package io.codenotary.immudb4j;
 
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+
 public interface KV {
     byte[] getKey();
     byte[] getValue();
+
+    /**
+     * Returns the key as a ByteString, which is a copy unless the entry already holds it as one.
+     */
+    default ByteString getKeyBytes() {
+        return ByteString.copyFrom(getKey());
+    }
+
+    /**
+     * Returns the value as a ByteString, which is a copy unless the entry already holds it as one.
+     */
+    default ByteString getValueBytes() {
+        return ByteString.copyFrom(getValue());
+    }
+
+    /**
+     * Returns a read-only view of the value.
+     */
+    default ByteBuffer getValueBuffer() {
+        return getValueBytes().asReadOnlyByteBuffer();
+    }
 }
@@ -17,7 +17,7 @@ package io.codenotary.immudb4j;
 
 import com.google.common.base.Charsets;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 public class KVList {
@@ -37,10 +37,19 @@ public class KVList {
     }
 
     public static class KVListBuilder {
-        private List<KV> kvList;
+        private ArrayList<KV> kvList;
 
         private KVListBuilder() {
-            kvList = new LinkedList<>();
+            kvList = new ArrayList<>();
+        }
+
+        /**
+         * Presizes the list for the given number of entries, sparing its growth when large
+         * batches are built.
+         */
+        public KVListBuilder withExpectedSize(int expectedSize) {
+            kvList.ensureCapacity(expectedSize);
+            return this;
         }
 
         public KVList build() {
@@ -63,9 +72,7 @@ public class KVList {
         }
 
         public KVListBuilder addAll(List<KV> kvs) {
-            for (KV kv : kvs) {
-                add(kv);
-            }
+            kvList.addAll(kvs);
             return this;
         }
     }
@@ -0,0 +1,57 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * The only references to the epoll transport, which is an optional dependency: its classes are
+ * resolved when these methods run, and their absence means the transport is unavailable.
+ */
+final class NativeTransport {
+
+  private NativeTransport() {
+  }
+
+  static boolean isAvailable() {
+    try {
+      return Epoll.isAvailable();
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  static EventLoopGroup newEventLoopGroup() {
+    return new EpollEventLoopGroup();
+  }
+
+  /** Returns the channel type matching the transport of the given event loop group. */
+  static Class<? extends SocketChannel> channelType(EventLoopGroup eventLoopGroup) {
+    try {
+      if (eventLoopGroup instanceof EpollEventLoopGroup) {
+        return EpollSocketChannel.class;
+      }
+    } catch (LinkageError e) {
+      // without the transport on the class path, the group cannot be an epoll one
+    }
+    return NioSocketChannel.class;
+  }
+}
@@ -0,0 +1,315 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cold publisher over a paginated immudb query.
+ *
+ * <p>Pages are only fetched once the previously fetched page has been fully emitted, so at most
+ * one page is held in memory per subscription. The next page is fetched as soon as a page is
+ * emitted, even without outstanding demand, so that completion is signalled without waiting for
+ * another request; sources which know their last page answer that without a call.
+ * Items are decoded right before being handed to the subscriber. Pages are fetched on the thread
+ * calling {@link Subscription#request(long)}.
+ */
+class PagedPublisher implements Publisher<KV> {
+
+  interface PageSource {
+
+    /** Returns the next page of items, or null once the query is exhausted. */
+    List<ImmudbProto.Item> nextPage();
+  }
+
+  private final Supplier<PageSource> sourceFactory;
+  private final Function<ImmudbProto.Item, KV> decoder;
+
+  PagedPublisher(Supplier<PageSource> sourceFactory, Function<ImmudbProto.Item, KV> decoder) {
+    this.sourceFactory = sourceFactory;
+    this.decoder = decoder;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super KV> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("Subscriber must not be null");
+    }
+
+    subscriber.onSubscribe(new PagedSubscription(subscriber, sourceFactory.get()));
+  }
+
+  static PagedPublisher scan(
+      Supplier<ImmuServiceGrpc.ImmuServiceBlockingStub> stubs,
+      byte[] prefix,
+      boolean reverse,
+      boolean deep,
+      int pageSize,
+      Function<ImmudbProto.Item, KV> decoder) {
+
+    return new PagedPublisher(
+        () ->
+            new PageSource() {
+              private ByteString offset = ByteString.EMPTY;
+              private boolean exhausted;
+
+              @Override
+              public List<ImmudbProto.Item> nextPage() {
+                if (exhausted) {
+                  return null;
+                }
+
+                ImmudbProto.ScanOptions opts =
+                    ImmudbProto.ScanOptions.newBuilder()
+                        .setPrefix(ByteString.copyFrom(prefix))
+                        .setOffset(offset)
+                        .setLimit(pageSize)
+                        .setReverse(reverse)
+                        .setDeep(deep)
+                        .build();
+
+                List<ImmudbProto.Item> items = stubs.get().scan(opts).getItemsList();
+
+                exhausted = items.size() < pageSize;
+
+                if (!items.isEmpty()) {
+                  offset = items.get(items.size() - 1).getKey();
+                }
+
+                return items;
+              }
+            },
+        decoder);
+  }
+
+  static PagedPublisher zScan(
+      Supplier<ImmuServiceGrpc.ImmuServiceBlockingStub> stubs,
+      byte[] set,
+      boolean reverse,
+      int pageSize,
+      Function<ImmudbProto.Item, KV> decoder) {
+
+    return new PagedPublisher(
+        () ->
+            new PageSource() {
+              private ByteString offset = ByteString.EMPTY;
+              private boolean exhausted;
+
+              @Override
+              public List<ImmudbProto.Item> nextPage() {
+                if (exhausted) {
+                  return null;
+                }
+
+                ImmudbProto.ZScanOptions opts =
+                    ImmudbProto.ZScanOptions.newBuilder()
+                        .setSet(ByteString.copyFrom(set))
+                        .setOffset(offset)
+                        .setLimit(pageSize)
+                        .setReverse(reverse)
+                        .build();
+
+                List<ImmudbProto.Item> items = stubs.get().zScan(opts).getItemsList();
+
+                exhausted = items.size() < pageSize;
+
+                if (!items.isEmpty()) {
+                  offset = items.get(items.size() - 1).getKey();
+                }
+
+                return items;
+              }
+            },
+        decoder);
+  }
+
+  static PagedPublisher iScan(
+      Supplier<ImmuServiceGrpc.ImmuServiceBlockingStub> stubs,
+      int pageSize,
+      Function<ImmudbProto.Item, KV> decoder) {
+
+    return new PagedPublisher(
+        () ->
+            new PageSource() {
+              private long pageNumber = 1;
+              private boolean exhausted;
+
+              @Override
+              public List<ImmudbProto.Item> nextPage() {
+                if (exhausted) {
+                  return null;
+                }
+
+                ImmudbProto.IScanOptions opts =
+                    ImmudbProto.IScanOptions.newBuilder()
+                        .setPageSize(pageSize)
+                        .setPageNumber(pageNumber++)
+                        .build();
+
+                ImmudbProto.Page page = stubs.get().iScan(opts);
+
+                exhausted = !page.getMore();
+
+                return page.getItemsList();
+              }
+            },
+        decoder);
+  }
+
+  static PagedPublisher history(
+      Supplier<ImmuServiceGrpc.ImmuServiceBlockingStub> stubs,
+      byte[] key,
+      Function<ImmudbProto.Item, KV> decoder) {
+
+    return new PagedPublisher(
+        () ->
+            new PageSource() {
+              private boolean exhausted;
+
+              @Override
+              public List<ImmudbProto.Item> nextPage() {
+                if (exhausted) {
+                  return null;
+                }
+
+                exhausted = true;
+
+                ImmudbProto.Key k =
+                    ImmudbProto.Key.newBuilder().setKey(ByteString.copyFrom(key)).build();
+
+                return stubs.get().history(k).getItemsList();
+              }
+            },
+        decoder);
+  }
+
+  private class PagedSubscription implements Subscription {
+
+    private final Subscriber<? super KV> subscriber;
+    private final PageSource source;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    private Iterator<ImmudbProto.Item> page = Collections.emptyIterator();
+
+    PagedSubscription(Subscriber<? super KV> subscriber, PageSource source) {
+      this.subscriber = subscriber;
+      this.source = source;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancelled = true;
+        subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+        return;
+      }
+
+      requested.accumulateAndGet(n, (r, m) -> r + m < 0 ? Long.MAX_VALUE : r + m);
+
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+
+      int missed = 1;
+
+      do {
+        long r = requested.get();
+        long emitted = 0;
+
+        while (emitted != r) {
+          if (cancelled || !nextPage()) {
+            return;
+          }
+
+          KV kv;
+
+          try {
+            kv = decoder.apply(page.next());
+          } catch (Throwable t) {
+            cancelled = true;
+            subscriber.onError(t);
+            return;
+          }
+
+          subscriber.onNext(kv);
+          emitted++;
+        }
+
+        // a subscriber asking for exactly the remaining items still gets completed
+        if (cancelled || !nextPage()) {
+          return;
+        }
+
+        if (emitted != 0 && r != Long.MAX_VALUE) {
+          requested.addAndGet(-emitted);
+        }
+
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    // moves to the next non-empty page, or terminates the subscriber when there is none
+    private boolean nextPage() {
+      while (!page.hasNext()) {
+        List<ImmudbProto.Item> items;
+
+        try {
+          items = source.nextPage();
+        } catch (Throwable t) {
+          cancelled = true;
+          subscriber.onError(t);
+          return false;
+        }
+
+        if (items == null) {
+          cancelled = true;
+          subscriber.onComplete();
+          return false;
+        }
+
+        page = items.iterator();
+      }
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+/**
+ * Thrown when a restore stops before the end of the backup file. The position reached can be
+ * passed to {@link DumpRestore.DumpRestoreBuilder#setResumeFrom} to resume it.
+ */
+public class RestoreException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long acknowledgedItems;
+
+  private final long lastIndex;
+
+  RestoreException(long acknowledgedItems, long lastIndex, Throwable cause) {
+    super("Restore stopped after " + acknowledgedItems + " items", cause);
+    this.acknowledgedItems = acknowledgedItems;
+    this.lastIndex = lastIndex;
+  }
+
+  /**
+   * Returns the number of items from the beginning of the file known to have been written.
+   */
+  public long getAcknowledgedItems() {
+    return acknowledgedItems;
+  }
+
+  /**
+   * Returns the index assigned by the server to the last acknowledged item, or -1 if none was
+   * acknowledged.
+   */
+  public long getLastIndex() {
+    return lastIndex;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size binary records of roots, shared by the root holders storing them in mapped files:
+ *
+ * <pre>
+ *   name length (2) | database name (128) | index (8) | digest length (1) | digest (32) | crc32 (4)
+ * </pre>
+ *
+ * <p>Digests shorter than 32 bytes are padded, as the root of an empty database has an empty
+ * digest.
+ */
+final class RootRecords {
+
+  static final int MAX_DATABASE_NAME_LENGTH = 128;
+  static final int DIGEST_LENGTH = 32;
+
+  static final int INDEX_OFFSET = 2 + MAX_DATABASE_NAME_LENGTH;
+  static final int CRC_OFFSET = INDEX_OFFSET + 8 + 1 + DIGEST_LENGTH;
+  static final int RECORD_SIZE = CRC_OFFSET + 4;
+
+  private RootRecords() {
+  }
+
+  static void encode(Root root, byte[] record, CRC32 crc) {
+    byte[] database = root.getDatabase().getBytes(StandardCharsets.UTF_8);
+
+    if (database.length == 0 || database.length > MAX_DATABASE_NAME_LENGTH) {
+      throw new IllegalArgumentException("Database name must be between 1 and "
+              + MAX_DATABASE_NAME_LENGTH + " bytes long");
+    }
+
+    byte[] digest = root.getDigest();
+
+    if (digest.length > DIGEST_LENGTH) {
+      throw new IllegalArgumentException("Root digest must be at most " + DIGEST_LENGTH + " bytes long");
+    }
+
+    ByteBuffer bb = ByteBuffer.wrap(record);
+    bb.putShort((short) database.length);
+    bb.put(database);
+    bb.put(new byte[MAX_DATABASE_NAME_LENGTH - database.length]);
+    bb.putLong(root.getIndex());
+    bb.put((byte) digest.length);
+    bb.put(digest);
+    bb.put(new byte[DIGEST_LENGTH - digest.length]);
+
+    crc.reset();
+    crc.update(record, 0, CRC_OFFSET);
+    bb.putInt((int) crc.getValue());
+  }
+
+  // returns null for an empty or corrupted record
+  static Root decode(byte[] record, CRC32 crc) {
+    ByteBuffer bb = ByteBuffer.wrap(record);
+
+    int length = bb.getShort();
+
+    if (length <= 0 || length > MAX_DATABASE_NAME_LENGTH) {
+      return null;
+    }
+
+    crc.reset();
+    crc.update(record, 0, CRC_OFFSET);
+
+    if (bb.getInt(CRC_OFFSET) != (int) crc.getValue()) {
+      return null;
+    }
+
+    String database = new String(record, 2, length, StandardCharsets.UTF_8);
+
+    bb.position(INDEX_OFFSET);
+    long index = bb.getLong();
+
+    int digestLength = bb.get();
+
+    if (digestLength < 0 || digestLength > DIGEST_LENGTH) {
+      return null;
+    }
+
+    byte[] digest = new byte[digestLength];
+    bb.get(digest);
+
+    return new Root(database, index, digest);
+  }
+
+}
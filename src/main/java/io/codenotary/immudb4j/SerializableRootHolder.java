@@ -22,24 +22,159 @@ import io.codenotary.immudb4j.crypto.Root;
 import java.io.*;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * In-memory root holder which can be written to and read from a stream.
+ *
+ * <p>Roots are written in a versioned binary format:
+ *
+ * <pre>
+ *   magic "IMRH" | version (1) | root count (varint)
+ *   per root: name length (varint) | name (utf-8) | index (varint) | digest length (varint) | digest
+ * </pre>
+ *
+ * <p>Database names are at most 128 bytes long and digests at most 32 bytes long. Streams holding
+ * the JSON format written by previous versions are still read.
+ */
 public class SerializableRootHolder implements RootHolder {
 
+  private static final byte[] MAGIC = {'I', 'M', 'R', 'H'};
+  private static final int VERSION = 1;
+
+  private static final int MAX_DATABASE_NAME_LENGTH = RootRecords.MAX_DATABASE_NAME_LENGTH;
+  private static final int DIGEST_LENGTH = RootRecords.DIGEST_LENGTH;
+
   private Map<String,Root> rootMap = new HashMap<>();
 
   public void readFrom(InputStream is) {
+    // reads no further than the roots, unlike a buffered stream
+    PushbackInputStream in = new PushbackInputStream(is, MAGIC.length);
+
+    try {
+      byte[] magic = new byte[MAGIC.length];
+      int read = 0;
+
+      while (read < magic.length) {
+        int n = in.read(magic, read, magic.length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+
+      if (read == MAGIC.length && Arrays.equals(magic, MAGIC)) {
+        readBinary(new DataInputStream(in));
+      } else {
+        in.unread(magic, 0, read);
+        readJson(in);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void readBinary(DataInputStream in) throws IOException {
+    int version = in.readUnsignedByte();
+
+    if (version != VERSION) {
+      throw new IOException("Unsupported root holder format version " + version);
+    }
+
+    long count = readVarLong(in);
+
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("Invalid root count " + count);
+    }
+
+    Map<String,Root> roots = new HashMap<>();
+
+    for (long i = 0; i < count; i++) {
+      byte[] database = new byte[readLength(in, MAX_DATABASE_NAME_LENGTH, "database name")];
+      in.readFully(database);
+
+      long index = readVarLong(in);
+
+      byte[] digest = new byte[readLength(in, DIGEST_LENGTH, "digest")];
+      in.readFully(digest);
+
+      Root root = new Root(new String(database, StandardCharsets.UTF_8), index, digest);
+      roots.put(root.getDatabase(), root);
+    }
+
+    rootMap = roots;
+  }
+
+  private static int readLength(DataInput in, int max, String what) throws IOException {
+    long length = readVarLong(in);
+
+    if (length < 0 || length > max) {
+      throw new IOException("Invalid " + what + " length " + length);
+    }
+
+    return (int) length;
+  }
+
+  // legacy format
+  private void readJson(InputStream in) {
     Gson gson = new Gson();
-    Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+    Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
 
     Type type = new TypeToken<HashMap<String, Root>>(){}.getType();
-    rootMap = gson.fromJson(reader, type);
+    Map<String,Root> roots = gson.fromJson(reader, type);
+
+    rootMap = roots == null ? new HashMap<>() : roots;
   }
 
   public void writeTo(OutputStream os) throws IOException {
-    Gson gson = new Gson();
-    os.write(gson.toJson(rootMap).getBytes(StandardCharsets.UTF_8));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+    writeVarLong(out, rootMap.size());
+
+    for (Root root : rootMap.values()) {
+      byte[] database = root.getDatabase().getBytes(StandardCharsets.UTF_8);
+
+      if (database.length > MAX_DATABASE_NAME_LENGTH || root.getDigest().length > DIGEST_LENGTH) {
+        throw new IOException("Root of database " + root.getDatabase() + " cannot be written");
+      }
+
+      writeVarLong(out, database.length);
+      out.write(database);
+
+      writeVarLong(out, root.getIndex());
+
+      writeVarLong(out, root.getDigest().length);
+      out.write(root.getDigest());
+    }
+
+    out.flush();
+  }
+
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new IOException("Malformed varint");
   }
 
   @Override
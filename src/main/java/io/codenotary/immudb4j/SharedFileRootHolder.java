@@ -0,0 +1,320 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Root holder backed by a memory-mapped table which can be shared by several processes.
+ *
+ * <p>The table holds one slot per database, each holding a record as laid out by
+ * {@link RootRecords}. Roots are advanced while holding an exclusive lock on the file, so that
+ * processes never overwrite a root with an older one. Reads go straight to the mapped table and
+ * only take a shared lock when a slot is found being written by another process, or the first
+ * time a database is looked up.
+ *
+ * <p>File locks are held on behalf of the whole JVM, so a process should use a single instance
+ * per roots file, shared among its clients.
+ */
+public class SharedFileRootHolder implements RootHolder, Closeable {
+
+  private static final int MAGIC = 0x494d5253; // "IMRS"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+
+  private static final int RECORD_SIZE = RootRecords.RECORD_SIZE;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer table;
+  private final int capacity;
+
+  // slots never move once assigned, so they can be cached by each process
+  private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+  // used while holding the instance monitor
+  private final byte[] record = new byte[RECORD_SIZE];
+  private final CRC32 crc = new CRC32();
+
+  // used by unlocked reads
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private SharedFileRootHolder(SharedFileRootHolderBuilder builder) throws IOException {
+    Path rootsFile = Paths.get(builder.getRootsFile());
+
+    Path parent = rootsFile.toAbsolutePath().getParent();
+
+    if (parent != null && Files.notExists(parent)) {
+      Files.createDirectories(parent);
+    }
+
+    channel =
+        FileChannel.open(
+            rootsFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    // the first process to lock an empty file initializes the table
+    FileLock lock = channel.lock();
+
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+      if (channel.size() == 0) {
+        header.putInt(MAGIC).putInt(VERSION).putInt(builder.getCapacity()).putInt(0);
+        header.flip();
+
+        channel.write(header, 0);
+        channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) builder.getCapacity() * RECORD_SIZE - 1);
+        channel.force(true);
+
+        header.clear();
+      }
+
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new RuntimeException("Inconsistent shared roots file");
+        }
+      }
+
+      header.flip();
+
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new RuntimeException("Inconsistent shared roots file");
+      }
+
+      capacity = header.getInt();
+    } finally {
+      lock.release();
+    }
+
+    table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+  }
+
+  @Override
+  public Root getRoot(String database) {
+    Integer slot = slots.get(database);
+
+    if (slot == null) {
+      slot = lockedFindSlot(database);
+
+      if (slot < 0) {
+        return null;
+      }
+
+      slots.put(database, slot);
+    }
+
+    Scratch scratch = SCRATCH.get();
+    readSlot(slot, scratch.record);
+
+    Root root = RootRecords.decode(scratch.record, scratch.crc);
+
+    if (root != null) {
+      return root;
+    }
+
+    // the slot is being written by another process
+    synchronized (this) {
+      try {
+        FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+
+        try {
+          readSlot(slot, record);
+          return RootRecords.decode(record, crc);
+        } finally {
+          lock.release();
+        }
+      } catch (IOException e) {
+        throw new RuntimeException("Unexpected error " + e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void setRoot(Root root) {
+    try {
+      FileLock lock = channel.lock();
+
+      try {
+        setLockedRoot(root);
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected error " + e);
+    }
+  }
+
+  // the file must be locked
+  private void setLockedRoot(Root root) {
+    Integer slot = slots.get(root.getDatabase());
+
+    if (slot == null) {
+      slot = findSlot(root.getDatabase());
+    }
+
+    if (slot < 0) {
+      slot = findFreeSlot();
+    } else {
+      readSlot(slot, record);
+      Root currentRoot = RootRecords.decode(record, crc);
+
+      if (currentRoot != null && currentRoot.getIndex() >= root.getIndex()) {
+        slots.put(root.getDatabase(), slot);
+        return;
+      }
+    }
+
+    RootRecords.encode(root, record, crc);
+
+    int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+    for (int i = 0; i < RECORD_SIZE; i++) {
+      table.put(offset + i, record[i]);
+    }
+
+    slots.put(root.getDatabase(), slot);
+  }
+
+  private synchronized int lockedFindSlot(String database) {
+    try {
+      FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+
+      try {
+        return findSlot(database);
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected error " + e);
+    }
+  }
+
+  // returns the slot holding the given database, or -1 if there is none, the file must be locked
+  private int findSlot(String database) {
+    for (int slot = 0; slot < capacity; slot++) {
+      readSlot(slot, record);
+
+      if (isFree(record)) {
+        // slots are assigned in order
+        return -1;
+      }
+
+      Root root = RootRecords.decode(record, crc);
+
+      if (root != null && root.getDatabase().equals(database)) {
+        return slot;
+      }
+    }
+
+    return -1;
+  }
+
+  private int findFreeSlot() {
+    for (int slot = 0; slot < capacity; slot++) {
+      readSlot(slot, record);
+
+      if (isFree(record)) {
+        return slot;
+      }
+    }
+
+    throw new RuntimeException("Shared roots file is full");
+  }
+
+  private static class Scratch {
+
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final CRC32 crc = new CRC32();
+  }
+
+  private static boolean isFree(byte[] record) {
+    return record[0] == 0 && record[1] == 0;
+  }
+
+  // absolute reads, as the buffer position is shared by all threads
+  private void readSlot(int slot, byte[] record) {
+    int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+    for (int i = 0; i < RECORD_SIZE; i++) {
+      record[i] = table.get(offset + i);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    table.force();
+    channel.close();
+  }
+
+  public static SharedFileRootHolderBuilder newBuilder() {
+    return new SharedFileRootHolderBuilder();
+  }
+
+  public static class SharedFileRootHolderBuilder {
+
+    private String rootsFile;
+
+    private int capacity;
+
+    private SharedFileRootHolderBuilder() {
+      rootsFile = "roots/shared_roots";
+      capacity = 1024;
+    }
+
+    public SharedFileRootHolder build() throws IOException {
+      return new SharedFileRootHolder(this);
+    }
+
+    public SharedFileRootHolderBuilder setRootsFile(String rootsFile) {
+      this.rootsFile = rootsFile;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of databases held when creating the roots file. The capacity of an
+     * existing file is kept.
+     */
+    public SharedFileRootHolderBuilder setCapacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("Capacity must be positive");
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    public String getRootsFile() {
+      return rootsFile;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb4j.crypto.Root;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded, least recently used cache of verified reads, keyed by database and key.
+ *
+ * <p>Each entry records the index and leaf of the item and the root it was proven at. Writes made
+ * through the client invalidate the entries of the written keys; a read started before such an
+ * invalidation is not cached, as it may have fetched the value being overwritten.
+ */
+class VerifiedReadCache {
+
+  static final class Entry {
+
+    private final byte[] value;
+    private final long itemIndex;
+    private final ByteString leaf;
+    private final long rootIndex;
+    private final byte[] rootDigest;
+
+    Entry(byte[] value, long itemIndex, ByteString leaf, long rootIndex, byte[] rootDigest) {
+      this.value = value;
+      this.itemIndex = itemIndex;
+      this.leaf = leaf;
+      this.rootIndex = rootIndex;
+      this.rootDigest = rootDigest;
+    }
+
+    byte[] getValue() {
+      return value.clone();
+    }
+
+    long getItemIndex() {
+      return itemIndex;
+    }
+
+    ByteString getLeaf() {
+      return leaf;
+    }
+
+    long getRootIndex() {
+      return rootIndex;
+    }
+
+    Root getRoot(String database) {
+      return new Root(database, rootIndex, rootDigest);
+    }
+
+    Entry provenAt(Root root) {
+      return new Entry(value, itemIndex, leaf, root.getIndex(), root.getDigest());
+    }
+  }
+
+  private final Map<CacheKey, Entry> entries;
+
+  // incremented on every invalidation
+  private long generation;
+
+  VerifiedReadCache(int maxSize) {
+    entries =
+        new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<CacheKey, VerifiedReadCache.Entry> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  synchronized long generation() {
+    return generation;
+  }
+
+  synchronized Entry get(String database, ByteString key) {
+    return entries.get(new CacheKey(database, key));
+  }
+
+  /**
+   * Caches the entry unless an invalidation happened since the given generation was read.
+   */
+  synchronized void put(String database, ByteString key, Entry entry, long generation) {
+    if (generation != this.generation) {
+      return;
+    }
+
+    CacheKey cacheKey = new CacheKey(database, key);
+    Entry current = entries.get(cacheKey);
+
+    if (current == null || current.getRootIndex() <= entry.getRootIndex()) {
+      entries.put(cacheKey, entry);
+    }
+  }
+
+  synchronized void invalidate(String database, ByteString key) {
+    generation++;
+    entries.remove(new CacheKey(database, key));
+  }
+
+  private static final class CacheKey {
+
+    private final String database;
+    private final ByteString key;
+
+    CacheKey(String database, ByteString key) {
+      this.database = database;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) o;
+      return database.equals(other.database) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(database, key);
+    }
+  }
+
+}
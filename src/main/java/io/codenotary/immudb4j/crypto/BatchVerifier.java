@@ -0,0 +1,187 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import io.codenotary.immudb.ImmudbProto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies many safe items at once against a single trusted root.
+ *
+ * <p>Consistency with the trusted root is checked once per distinct tree size, i.e. proof
+ * {@code at}. Inclusion paths are verified in parallel on a fork-join pool, and interior nodes
+ * shared by several paths of the same tree are only hashed up to the root once.
+ */
+public class BatchVerifier {
+
+  private final Hasher hasher;
+  private final ForkJoinPool pool;
+  private final int batchSize;
+  private final int minCachedLevel;
+
+  private BatchVerifier(BatchVerifierBuilder builder) {
+    this.hasher = builder.hasher;
+    this.pool = builder.pool;
+    this.batchSize = builder.batchSize;
+    this.minCachedLevel = builder.minCachedLevel;
+  }
+
+  public static BatchVerifierBuilder newBuilder() {
+    return new BatchVerifierBuilder();
+  }
+
+  /**
+   * Verifies that every item is included in the tree proven by its proof, and that each of these
+   * trees is consistent with the given trusted root, if any.
+   */
+  public void verify(List<ImmudbProto.SafeItem> safeItems, Root root) throws VerificationException {
+    Map<Long, ImmudbProto.Proof> proofsByAt = new HashMap<>();
+
+    for (ImmudbProto.SafeItem safeItem : safeItems) {
+      ImmudbProto.Proof proof = safeItem.getProof();
+      ImmudbProto.Proof other = proofsByAt.putIfAbsent(proof.getAt(), proof);
+
+      // a tree has a single root, which is what makes its verified nodes shareable
+      if (other != null && !other.getRoot().equals(proof.getRoot())) {
+        throw new VerificationException("Proof does not verify!");
+      }
+    }
+
+    Map<Long, VerifiedNodes> verifiedNodes = new HashMap<>();
+
+    for (ImmudbProto.Proof proof : proofsByAt.values()) {
+      if (root != null && root.getIndex() > 0) {
+        CryptoUtils.verifyConsistency(proof, root, hasher);
+      }
+
+      verifiedNodes.put(proof.getAt(), new VerifiedNodes(minCachedLevel));
+    }
+
+    try {
+      pool.invoke(new InclusionTask(safeItems, verifiedNodes, 0, safeItems.size()));
+    } catch (CompletionException e) {
+      // the pool may wrap the exception thrown by a worker once more when rethrowing it
+      for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+        if (t instanceof VerificationException) {
+          throw (VerificationException) t;
+        }
+      }
+      throw e;
+    }
+  }
+
+  private class InclusionTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ImmudbProto.SafeItem> safeItems;
+    private final Map<Long, VerifiedNodes> verifiedNodes;
+    private final int from;
+    private final int to;
+
+    InclusionTask(List<ImmudbProto.SafeItem> safeItems, Map<Long, VerifiedNodes> verifiedNodes, int from, int to) {
+      this.safeItems = safeItems;
+      this.verifiedNodes = verifiedNodes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > batchSize) {
+        int middle = (from + to) >>> 1;
+
+        invokeAll(
+            new InclusionTask(safeItems, verifiedNodes, from, middle),
+            new InclusionTask(safeItems, verifiedNodes, middle, to));
+        return;
+      }
+
+      for (int i = from; i < to; i++) {
+        ImmudbProto.SafeItem safeItem = safeItems.get(i);
+        ImmudbProto.Proof proof = safeItem.getProof();
+
+        try {
+          CryptoUtils.verifyInclusion(proof, safeItem.getItem(), hasher, verifiedNodes.get(proof.getAt()));
+        } catch (VerificationException e) {
+          throw new CompletionException(e);
+        }
+      }
+    }
+  }
+
+  public static class BatchVerifierBuilder {
+
+    private Hasher hasher;
+
+    private ForkJoinPool pool;
+
+    private int batchSize;
+
+    private int minCachedLevel;
+
+    private BatchVerifierBuilder() {
+      this.hasher = Hasher.jca();
+      this.pool = ForkJoinPool.commonPool();
+      this.batchSize = 256;
+      this.minCachedLevel = 4;
+    }
+
+    public BatchVerifier build() {
+      return new BatchVerifier(this);
+    }
+
+    public BatchVerifierBuilder setHasher(Hasher hasher) {
+      this.hasher = hasher;
+      return this;
+    }
+
+    public BatchVerifierBuilder setPool(ForkJoinPool pool) {
+      this.pool = pool;
+      return this;
+    }
+
+    /**
+     * Sets the number of items below which a task verifies its items instead of splitting them.
+     */
+    public BatchVerifierBuilder setBatchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("Batch size must be positive");
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Sets the lowest tree level whose verified nodes are kept, trading memory for hashing: a
+     * node at level n stands for 2^n leaves.
+     */
+    public BatchVerifierBuilder setMinCachedLevel(int minCachedLevel) {
+      if (minCachedLevel <= 0) {
+        throw new IllegalArgumentException("Min cached level must be positive");
+      }
+      this.minCachedLevel = minCachedLevel;
+      return this;
+    }
+  }
+
+}
@@ -17,19 +17,18 @@ package io.codenotary.immudb4j.crypto;
 
 import com.google.protobuf.ByteString;
 import io.codenotary.immudb.ImmudbProto;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.security.DigestException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * immudb client using grpc.
  *
  * @author Jeronimo Irazabal
  *     <p>Java port of proof verification algortihms implemented in github.com/codenotary/merkletree
+ *     <p>Proof paths are hashed straight from their ByteString representation into per-thread
+ *     scratch buffers with the per-thread MessageDigest of a {@link Hasher}, so walking a proof
+ *     does not allocate. Methods without a hasher use {@link Hasher#jca()}.
  */
 public class CryptoUtils {
 
@@ -37,22 +36,65 @@ public class CryptoUtils {
   private static final byte NODE_PREFIX = 1;
   private static final int DIGEST_LENGTH = 32;
 
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
   public static void verify(ImmudbProto.Proof proof, ImmudbProto.Item item, Root root)
       throws VerificationException {
-    byte[] h = entryDigest(item);
+    verify(proof, item, root, Hasher.jca());
+  }
 
-    if (!Arrays.equals(proof.getLeaf().toByteArray(), h)) {
-      throw new VerificationException("Proof does not verify!");
+  public static void verify(ImmudbProto.Proof proof, ImmudbProto.Item item, Root root, Hasher hasher)
+      throws VerificationException {
+    verifyInclusion(proof, item, hasher);
+
+    if (root != null && root.getIndex() > 0) {
+      verifyConsistency(proof, root, hasher);
     }
+  }
 
-    verifyInclusion(proof);
+  /**
+   * Verifies that the proof leaf corresponds to the given item and that it is included in the
+   * tree proven by the proof. Consistency with a previously trusted root is not checked.
+   */
+  public static void verifyInclusion(ImmudbProto.Proof proof, ImmudbProto.Item item)
+      throws VerificationException {
+    verifyInclusion(proof, item, Hasher.jca());
+  }
 
-    if (root != null && root.getIndex() > 0) {
-      verifyConsistency(proof, root);
+  public static void verifyInclusion(ImmudbProto.Proof proof, ImmudbProto.Item item, Hasher hasher)
+      throws VerificationException {
+    verifyInclusion(proof, item, hasher, null);
+  }
+
+  static void verifyInclusion(
+      ImmudbProto.Proof proof, ImmudbProto.Item item, Hasher hasher, VerifiedNodes verifiedNodes)
+      throws VerificationException {
+    Scratch scratch = SCRATCH.get();
+
+    entryDigest(item, hasher.sha256(), scratch, scratch.leaf);
+
+    if (!equal(scratch.leaf, proof.getLeaf())) {
+      throw new VerificationException("Proof does not verify!");
     }
+
+    verifyInclusion(proof, hasher, verifiedNodes);
   }
 
   public static void verifyInclusion(ImmudbProto.Proof proof) throws VerificationException {
+    verifyInclusion(proof, Hasher.jca());
+  }
+
+  public static void verifyInclusion(ImmudbProto.Proof proof, Hasher hasher)
+      throws VerificationException {
+    verifyInclusion(proof, hasher, null);
+  }
+
+  /**
+   * Verifies the inclusion path, stopping as soon as it reaches a node already verified against
+   * the same root. Nodes verified along the way are added to the given ones, if any.
+   */
+  static void verifyInclusion(ImmudbProto.Proof proof, Hasher hasher, VerifiedNodes verifiedNodes)
+      throws VerificationException {
     long at = proof.getAt();
     long i = proof.getIndex();
 
@@ -60,41 +102,74 @@ public class CryptoUtils {
       throw new VerificationException("Inclusion proof does not verify!");
     }
 
-    byte[] h = proof.getLeaf().toByteArray();
+    Scratch scratch = SCRATCH.get();
+    MessageDigest sha256 = hasher.sha256();
+    byte[] node = scratch.node;
+    byte[] h = scratch.first;
 
-    for (ByteString v : proof.getInclusionPathList()) {
-      ByteBuffer buffer = ByteBuffer.allocate(DIGEST_LENGTH * 2 + 1);
+    // highest level whose node was recorded to be added to the verified nodes
+    int cachedLevel = 0;
 
-      buffer.put(NODE_PREFIX);
+    copyDigest(proof.getLeaf(), h, 0);
+
+    for (int step = 0; step < proof.getInclusionPathCount(); step++) {
+      ByteString v = proof.getInclusionPath(step);
 
       if (i % 2 == 0 && i != at) {
-        buffer.put(h);
-        buffer.put(v.toByteArray());
+        System.arraycopy(h, 0, node, 1, DIGEST_LENGTH);
+        copyDigest(v, node, 1 + DIGEST_LENGTH);
       } else {
-        buffer.put(v.toByteArray());
-        buffer.put(h);
+        copyDigest(v, node, 1);
+        System.arraycopy(h, 0, node, 1 + DIGEST_LENGTH, DIGEST_LENGTH);
       }
 
-      h = digest(buffer.array());
+      scratch.digestNode(sha256, h);
       i /= 2;
       at /= 2;
+
+      int level = step + 1;
+
+      if (verifiedNodes != null && verifiedNodes.caches(level, proof.getIndex(), proof.getAt())) {
+        byte[] verified = verifiedNodes.get(level, i);
+
+        if (verified != null) {
+          if (!Arrays.equals(h, verified)) {
+            throw new VerificationException("Inclusion proof does not verify!");
+          }
+
+          verifiedNodes.addPath(proof.getIndex(), scratch.path(), level);
+          return;
+        }
+
+        System.arraycopy(h, 0, scratch.path()[level], 0, DIGEST_LENGTH);
+        cachedLevel = level;
+      }
     }
 
-    if (at != i || !Arrays.equals(h, proof.getRoot().toByteArray())) {
+    if (at != i || !equal(h, proof.getRoot())) {
       throw new VerificationException("Inclusion proof does not verify!");
     }
+
+    if (verifiedNodes != null) {
+      verifiedNodes.addPath(proof.getIndex(), scratch.path(), cachedLevel + 1);
+    }
   }
 
   public static void verifyConsistency(ImmudbProto.Proof proof, Root root)
       throws VerificationException {
+    verifyConsistency(proof, root, Hasher.jca());
+  }
+
+  public static void verifyConsistency(ImmudbProto.Proof proof, Root root, Hasher hasher)
+      throws VerificationException {
     long second = proof.getAt();
     long first = root.getIndex();
-    byte[] secondHash = proof.getRoot().toByteArray();
+    ByteString secondHash = proof.getRoot();
     byte[] firstHash = root.getDigest();
 
     int l = proof.getConsistencyPathCount();
 
-    if (first == second && Arrays.equals(firstHash, secondHash) && l == 0) {
+    if (first == second && equal(firstHash, secondHash) && l == 0) {
       return;
     }
 
@@ -102,15 +177,9 @@ public class CryptoUtils {
       throw new VerificationException("Consistency proof does not verify!");
     }
 
-    List<byte[]> pp = new LinkedList<>();
-
-    if (isPowerOfTwo(first + 1)) {
-      pp.add(firstHash);
-    }
-
-    for (ByteString n : proof.getConsistencyPathList()) {
-      pp.add(n.toByteArray());
-    }
+    // when the first tree is complete its root is the implicit first element of the path
+    int offset = isPowerOfTwo(first + 1) ? 1 : 0;
+    int pathLength = l + offset;
 
     long fn = first;
     long sn = second;
@@ -120,80 +189,200 @@ public class CryptoUtils {
       sn >>= 1;
     }
 
-    byte[] fr = pp.get(0);
-    byte[] sr = pp.get(0);
+    Scratch scratch = SCRATCH.get();
+    MessageDigest sha256 = hasher.sha256();
+    byte[] node = scratch.node;
+    byte[] fr = scratch.first;
+    byte[] sr = scratch.second;
 
-    for (int step = 0; step < pp.size(); step++) {
-      if (step == 0) {
-        continue;
-      }
+    copyPathElement(proof, firstHash, offset, 0, fr, 0);
+    System.arraycopy(fr, 0, sr, 0, DIGEST_LENGTH);
 
+    for (int step = 1; step < pathLength; step++) {
       if (sn == 0) {
         throw new VerificationException("Consistency proof does not verify!");
       }
 
-      ByteBuffer bufferSr = ByteBuffer.allocate(DIGEST_LENGTH * 2 + 1);
-      bufferSr.order(ByteOrder.BIG_ENDIAN);
-      bufferSr.put(NODE_PREFIX);
-
-      byte[] c = pp.get(step);
-
       if (fn % 2 == 1 || fn == sn) {
-        ByteBuffer bufferFn = ByteBuffer.allocate(DIGEST_LENGTH * 2 + 1);
-        bufferFn.order(ByteOrder.BIG_ENDIAN);
-        bufferFn.put(NODE_PREFIX);
-        bufferFn.put(c);
-        bufferFn.put(fr);
-        fr = digest(bufferFn.array());
+        copyPathElement(proof, firstHash, offset, step, node, 1);
 
-        bufferSr.put(c);
-        bufferSr.put(sr);
-        sr = digest(bufferSr.array());
+        System.arraycopy(fr, 0, node, 1 + DIGEST_LENGTH, DIGEST_LENGTH);
+        scratch.digestNode(sha256, fr);
+
+        System.arraycopy(sr, 0, node, 1 + DIGEST_LENGTH, DIGEST_LENGTH);
+        scratch.digestNode(sha256, sr);
 
         while (fn % 2 == 0 && fn != 0) {
           fn >>= 1;
           sn >>= 1;
         }
       } else {
-        bufferSr.put(sr);
-        bufferSr.put(c);
-        sr = digest(bufferSr.array());
+        System.arraycopy(sr, 0, node, 1, DIGEST_LENGTH);
+        copyPathElement(proof, firstHash, offset, step, node, 1 + DIGEST_LENGTH);
+        scratch.digestNode(sha256, sr);
       }
 
       fn >>= 1;
       sn >>= 1;
     }
 
-    if (!Arrays.equals(fr, firstHash) || !Arrays.equals(sr, secondHash) || sn != 0) {
+    if (!Arrays.equals(fr, firstHash) || !equal(sr, secondHash) || sn != 0) {
       throw new VerificationException("Consistency proof does not verify!");
     }
   }
 
+  /**
+   * Verifies the proof of an item appended right after the tree of the given trusted frontier by
+   * folding its leaf into the frontier: a matching root proves both the inclusion of the item and
+   * the consistency with the trusted tree, without walking the proof paths.
+   *
+   * @return the frontier of the proven tree
+   */
+  public static Frontier verifyAppend(
+      ImmudbProto.Proof proof, ImmudbProto.Item item, Frontier frontier, Hasher hasher)
+      throws VerificationException {
+    if (proof.getIndex() != frontier.size() || proof.getAt() != frontier.size()) {
+      throw new VerificationException("Proof does not verify!");
+    }
+
+    Scratch scratch = SCRATCH.get();
+
+    entryDigest(item, hasher.sha256(), scratch, scratch.leaf);
+
+    if (!equal(scratch.leaf, proof.getLeaf())) {
+      throw new VerificationException("Proof does not verify!");
+    }
+
+    Frontier appended = frontier.append(scratch.leaf.clone(), hasher);
+
+    if (!appended.hasRoot(proof.getRoot().toByteArray())) {
+      throw new VerificationException("Proof does not verify!");
+    }
+
+    return appended;
+  }
+
   public static boolean isPowerOfTwo(long n) {
     return (n != 0) && ((n & (n - 1)) == 0);
   }
 
   public static byte[] entryDigest(ImmudbProto.Item item) {
-    int kl = item.getKey().size();
-    int vl = item.getValue().size();
+    return entryDigest(item, Hasher.jca());
+  }
 
-    ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + kl + vl);
-    buffer.order(ByteOrder.BIG_ENDIAN);
-    buffer.put(LEAF_PREFIX);
-    buffer.putLong(item.getIndex());
-    buffer.putLong(kl);
-    buffer.put(item.getKey().toByteArray());
-    buffer.put(item.getValue().toByteArray());
+  public static byte[] entryDigest(ImmudbProto.Item item, Hasher hasher) {
+    byte[] digest = new byte[DIGEST_LENGTH];
+    entryDigest(item, hasher.sha256(), SCRATCH.get(), digest);
+    return digest;
+  }
 
-    return digest(buffer.array());
+  private static void entryDigest(
+      ImmudbProto.Item item, MessageDigest sha256, Scratch scratch, byte[] out) {
+    byte[] header = scratch.header;
+    header[0] = LEAF_PREFIX;
+    putLong(header, 1, item.getIndex());
+    putLong(header, 9, item.getKey().size());
+
+    sha256.update(header);
+    sha256.update(item.getKey().asReadOnlyByteBuffer());
+    sha256.update(item.getValue().asReadOnlyByteBuffer());
+    digest(sha256, out);
   }
 
-  private static byte[] digest(byte[] data) {
+  private static void copyPathElement(
+      ImmudbProto.Proof proof, byte[] firstHash, int offset, int step, byte[] target, int targetOffset)
+      throws VerificationException {
+    if (firstHash.length != DIGEST_LENGTH) {
+      throw new VerificationException("Consistency proof does not verify!");
+    }
+
+    if (step < offset) {
+      System.arraycopy(firstHash, 0, target, targetOffset, DIGEST_LENGTH);
+      return;
+    }
+
+    ByteString n = proof.getConsistencyPath(step - offset);
+
+    if (n.size() != DIGEST_LENGTH) {
+      throw new VerificationException("Consistency proof does not verify!");
+    }
+
+    n.copyTo(target, targetOffset);
+  }
+
+  private static void copyDigest(ByteString digest, byte[] target, int targetOffset)
+      throws VerificationException {
+    if (digest.size() != DIGEST_LENGTH) {
+      throw new VerificationException("Inclusion proof does not verify!");
+    }
+
+    digest.copyTo(target, targetOffset);
+  }
+
+  private static boolean equal(byte[] digest, ByteString other) {
+    if (other.size() != digest.length) {
+      return false;
+    }
+
+    for (int i = 0; i < digest.length; i++) {
+      if (digest[i] != other.byteAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static void putLong(byte[] target, int offset, long value) {
+    for (int i = 7; i >= 0; i--) {
+      target[offset + i] = (byte) value;
+      value >>>= 8;
+    }
+  }
+
+  static byte[] nodeDigest(MessageDigest sha256, byte[] left, byte[] right) {
+    sha256.update(NODE_PREFIX);
+    sha256.update(left);
+    sha256.update(right);
+    return sha256.digest();
+  }
+
+  private static void digest(MessageDigest sha256, byte[] out) {
     try {
-      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
-      return sha256.digest(data);
-    } catch (NoSuchAlgorithmException e) {
+      sha256.digest(out, 0, DIGEST_LENGTH);
+    } catch (DigestException e) {
       throw new RuntimeException(e);
     }
   }
+
+  private static class Scratch {
+
+    // node[0] always holds the node prefix, children are copied at 1 and 1 + DIGEST_LENGTH
+    private final byte[] node = new byte[DIGEST_LENGTH * 2 + 1];
+
+    private final byte[] first = new byte[DIGEST_LENGTH];
+    private final byte[] second = new byte[DIGEST_LENGTH];
+    private final byte[] leaf = new byte[DIGEST_LENGTH];
+
+    private final byte[] header = new byte[1 + 8 + 8];
+
+    // digests of the nodes of the path being verified, by level, only used by batch verification
+    private byte[][] path;
+
+    Scratch() {
+      node[0] = NODE_PREFIX;
+    }
+
+    byte[][] path() {
+      if (path == null) {
+        path = new byte[Long.SIZE + 1][DIGEST_LENGTH];
+      }
+      return path;
+    }
+
+    void digestNode(MessageDigest sha256, byte[] out) {
+      sha256.update(node);
+      digest(sha256, out);
+    }
+  }
 }
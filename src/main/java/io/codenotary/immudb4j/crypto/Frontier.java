@@ -0,0 +1,109 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import io.codenotary.immudb.ImmudbProto;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Right-edge frontier of a tree, i.e. the roots of the complete subtrees its leaves decompose
+ * into, from the largest to the smallest, which is all that is needed to append leaves to it.
+ *
+ * <p>Frontiers are immutable.
+ */
+public class Frontier {
+
+  private final long size;
+  private final byte[][] nodes;
+  private final byte[] root;
+
+  private Frontier(long size, byte[][] nodes, MessageDigest sha256) {
+    this.size = size;
+    this.nodes = nodes;
+
+    // the empty tree has no root
+    byte[] r = nodes.length == 0 ? null : nodes[nodes.length - 1];
+
+    for (int i = nodes.length - 2; i >= 0; i--) {
+      r = CryptoUtils.nodeDigest(sha256, nodes[i], r);
+    }
+
+    this.root = r;
+  }
+
+  /**
+   * Returns the frontier of the tree proven by a verified proof of its last leaf, whose inclusion
+   * path holds the roots of the subtrees on its left.
+   */
+  public static Frontier of(ImmudbProto.Proof proof, Hasher hasher) {
+    long at = proof.getAt();
+
+    if (proof.getIndex() != at || proof.getInclusionPathCount() != Long.bitCount(at)) {
+      throw new IllegalArgumentException("Not a proof of the last leaf of a tree");
+    }
+
+    int count = proof.getInclusionPathCount();
+    byte[][] left = new byte[count][];
+
+    for (int i = 0; i < count; i++) {
+      left[count - 1 - i] = proof.getInclusionPath(i).toByteArray();
+    }
+
+    return new Frontier(at, left, hasher.sha256()).append(proof.getLeaf().toByteArray(), hasher);
+  }
+
+  /**
+   * Returns the frontier of this tree with the given leaf digest appended.
+   */
+  public Frontier append(byte[] leaf, Hasher hasher) {
+    MessageDigest sha256 = hasher.sha256();
+
+    int count = nodes.length;
+    byte[] h = leaf;
+
+    // merges the complete subtrees of equal size, as a binary counter carries
+    for (long n = size; (n & 1) == 1; n >>= 1) {
+      h = CryptoUtils.nodeDigest(sha256, nodes[--count], h);
+    }
+
+    byte[][] appended = Arrays.copyOf(nodes, count + 1);
+    appended[count] = h;
+
+    return new Frontier(size + 1, appended, sha256);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte[] root() {
+    return root.clone();
+  }
+
+  /**
+   * Returns whether this is the frontier of the tree of the given root.
+   */
+  public boolean isAt(Root root) {
+    return size == root.getIndex() + 1 && Arrays.equals(this.root, root.getDigest());
+  }
+
+  boolean hasRoot(byte[] digest) {
+    return Arrays.equals(root, digest);
+  }
+
+}
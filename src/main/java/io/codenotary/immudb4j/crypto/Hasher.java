@@ -0,0 +1,70 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Provider;
+
+/**
+ * Source of the SHA-256 digests used to verify proofs.
+ *
+ * <p>Implementations must be thread safe. The digests returned by {@link #sha256()} are only used
+ * by the calling thread and are always left reset.
+ */
+public interface Hasher {
+
+  /**
+   * Returns a SHA-256 digest owned by the calling thread.
+   */
+  MessageDigest sha256();
+
+  /**
+   * Returns a hasher caching one digest per thread from the most preferred JCA provider.
+   */
+  static Hasher jca() {
+    return ThreadLocalHasher.JCA;
+  }
+
+  /**
+   * Returns a hasher caching one digest per thread from the given JCA provider, e.g. "SUN" whose
+   * SHA-256 is intrinsified by HotSpot on CPUs with SHA extensions.
+   */
+  static Hasher ofProvider(String provider) {
+    return new ThreadLocalHasher(() -> {
+      try {
+        return MessageDigest.getInstance("SHA-256", provider);
+      } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+        throw new IllegalArgumentException(e);
+      }
+    });
+  }
+
+  /**
+   * Returns a hasher caching one digest per thread from the given JCA provider.
+   */
+  static Hasher ofProvider(Provider provider) {
+    return new ThreadLocalHasher(() -> {
+      try {
+        return MessageDigest.getInstance("SHA-256", provider);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalArgumentException(e);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only Merkle tree following the layout verified by {@link CryptoUtils}. It backs the
+ * in-memory immudb server and produces valid proofs of arbitrary depth for benchmarks.
+ *
+ * <p>Roots of complete subtrees are kept per level, so any root, inclusion path or consistency
+ * path can be computed in O(log^2 n). Instances are not thread-safe.
+ */
+public class MerkleTree {
+
+  private static final byte NODE_PREFIX = 1;
+
+  private final List<List<byte[]>> levels = new ArrayList<>();
+
+  private final MessageDigest sha256;
+
+  public MerkleTree() {
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+
+    levels.add(new ArrayList<>());
+  }
+
+  public long size() {
+    return levels.get(0).size();
+  }
+
+  /** Appends the given item, whose index must be the current size of the tree. */
+  public void add(ImmudbProto.Item item) {
+    if (item.getIndex() != size()) {
+      throw new IllegalArgumentException("Unexpected item index");
+    }
+
+    byte[] h = CryptoUtils.entryDigest(item);
+
+    int level = 0;
+    int i = levels.get(0).size();
+
+    levels.get(0).add(h);
+
+    while (i % 2 == 1) {
+      List<byte[]> current = levels.get(level);
+
+      if (levels.size() == level + 1) {
+        levels.add(new ArrayList<>());
+      }
+
+      h = node(current.get(i - 1), h);
+      levels.get(level + 1).add(h);
+
+      level++;
+      i /= 2;
+    }
+  }
+
+  public byte[] root(long size) {
+    return hash(0, size);
+  }
+
+  public ImmudbProto.Proof proof(long index, long size, long firstSize) {
+    ImmudbProto.Proof.Builder builder =
+        ImmudbProto.Proof.newBuilder()
+            .setLeaf(ByteString.copyFrom(levels.get(0).get((int) index)))
+            .setIndex(index)
+            .setAt(size - 1)
+            .setRoot(ByteString.copyFrom(root(size)));
+
+    for (byte[] h : inclusionPath(index, 0, size)) {
+      builder.addInclusionPath(ByteString.copyFrom(h));
+    }
+
+    if (firstSize > 0 && firstSize < size) {
+      for (byte[] h : consistencyPath(firstSize, 0, size, true)) {
+        builder.addConsistencyPath(ByteString.copyFrom(h));
+      }
+    }
+
+    return builder.build();
+  }
+
+  private List<byte[]> inclusionPath(long m, long lo, long hi) {
+    long n = hi - lo;
+
+    if (n <= 1) {
+      return new ArrayList<>();
+    }
+
+    long k = split(n);
+    List<byte[]> path;
+
+    if (m < k) {
+      path = inclusionPath(m, lo, lo + k);
+      path.add(hash(lo + k, hi));
+    } else {
+      path = inclusionPath(m - k, lo + k, hi);
+      path.add(hash(lo, lo + k));
+    }
+
+    return path;
+  }
+
+  private List<byte[]> consistencyPath(long m, long lo, long hi, boolean complete) {
+    long n = hi - lo;
+
+    if (m == n) {
+      List<byte[]> path = new ArrayList<>();
+
+      if (!complete) {
+        path.add(hash(lo, hi));
+      }
+
+      return path;
+    }
+
+    long k = split(n);
+    List<byte[]> path;
+
+    if (m <= k) {
+      path = consistencyPath(m, lo, lo + k, complete);
+      path.add(hash(lo + k, hi));
+    } else {
+      path = consistencyPath(m - k, lo + k, hi, false);
+      path.add(hash(lo, lo + k));
+    }
+
+    return path;
+  }
+
+  private byte[] hash(long lo, long hi) {
+    long n = hi - lo;
+
+    if (CryptoUtils.isPowerOfTwo(n) && lo % n == 0) {
+      return levels.get(Long.numberOfTrailingZeros(n)).get((int) (lo / n));
+    }
+
+    long k = split(n);
+
+    return node(hash(lo, lo + k), hash(lo + k, hi));
+  }
+
+  private byte[] node(byte[] left, byte[] right) {
+    sha256.update(NODE_PREFIX);
+    sha256.update(left);
+    sha256.update(right);
+    return sha256.digest();
+  }
+
+  // largest power of two smaller than n
+  private static long split(long n) {
+    return Long.highestOneBit(n - 1);
+  }
+}
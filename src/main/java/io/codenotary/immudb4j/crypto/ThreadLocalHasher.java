@@ -0,0 +1,47 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+
+class ThreadLocalHasher implements Hasher {
+
+  static final ThreadLocalHasher JCA = new ThreadLocalHasher(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  });
+
+  private final ThreadLocal<MessageDigest> digests;
+
+  ThreadLocalHasher(Supplier<MessageDigest> digestFactory) {
+    // fails fast on a misconfigured provider instead of on the first verification
+    MessageDigest first = digestFactory.get();
+
+    digests = ThreadLocal.withInitial(digestFactory);
+    digests.set(first);
+  }
+
+  @Override
+  public MessageDigest sha256() {
+    return digests.get();
+  }
+
+}
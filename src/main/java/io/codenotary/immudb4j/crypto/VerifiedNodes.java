@@ -0,0 +1,61 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interior nodes of a tree already verified to be included in its root, keyed by level and
+ * position. Only nodes from a minimum level up are kept, each of them saving the hashing of the
+ * rest of the path for the leaves below it.
+ *
+ * <p>Only complete subtrees lying entirely within the tree are kept: on its right edge, the
+ * inclusion walk does not follow tree levels, so a level and position do not identify a node.
+ */
+class VerifiedNodes {
+
+  private final int minLevel;
+
+  private final ConcurrentMap<Long, byte[]> nodes = new ConcurrentHashMap<>();
+
+  VerifiedNodes(int minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  // whether the node reached at the given level of the path of a leaf is kept
+  boolean caches(int level, long index, long at) {
+    return level >= minLevel
+        && level < Long.SIZE - 1
+        && ((index >>> level) + 1) << level <= at + 1;
+  }
+
+  byte[] get(int level, long position) {
+    return nodes.get(key(level, position));
+  }
+
+  // adds the nodes of the path of the given leaf, from the minimum level up to the given one
+  void addPath(long index, byte[][] path, int toLevel) {
+    for (int level = minLevel; level < toLevel; level++) {
+      nodes.putIfAbsent(key(level, index >>> level), path[level].clone());
+    }
+  }
+
+  private static long key(int level, long position) {
+    return ((long) level << 57) | position;
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.testing;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+import java.io.IOException;
+
+/**
+ * {@link InMemoryImmuService} exposed through grpc's in-process transport.
+ *
+ * <pre>
+ *   InMemoryImmuServer server = InMemoryImmuServer.start();
+ *
+ *   ImmuClient immuClient = ImmuClient.newBuilder()
+ *                                     .setChannel(server.newChannel())
+ *                                     .build();
+ * </pre>
+ */
+public class InMemoryImmuServer implements AutoCloseable {
+
+  private final String name;
+
+  private final InMemoryImmuService service;
+
+  private final Server server;
+
+  private InMemoryImmuServer(String name) throws IOException {
+    this.name = name;
+    this.service = new InMemoryImmuService();
+    this.server =
+        InProcessServerBuilder.forName(name)
+            .addService(ServerInterceptors.intercept(service, service.authInterceptor()))
+            .build()
+            .start();
+  }
+
+  public static InMemoryImmuServer start() throws IOException {
+    return new InMemoryImmuServer(InProcessServerBuilder.generateName());
+  }
+
+  public static InMemoryImmuServer start(String name) throws IOException {
+    return new InMemoryImmuServer(name);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public InMemoryImmuService getService() {
+    return service;
+  }
+
+  /** Creates a new channel to this server. Channels are owned and shut down by the caller. */
+  public ManagedChannel newChannel() {
+    return InProcessChannelBuilder.forName(name).build();
+  }
+
+  @Override
+  public void close() {
+    server.shutdownNow();
+  }
+}
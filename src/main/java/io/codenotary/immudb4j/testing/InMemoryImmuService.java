@@ -0,0 +1,616 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.testing;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import io.codenotary.immudb4j.crypto.MerkleTree;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of the immudb service, for tests and benchmarks that cannot rely on
+ * an immudb binary.
+ *
+ * <p>Every database is backed by a {@link MerkleTree}, so verified operations return real proofs
+ * that pass client side verification. Users and permissions are not modelled: any credentials
+ * are accepted and requests without a session token use the default database. Sorted sets are
+ * kept aside from the tree, so zAdd returns the index of the referenced item. Structured values are
+ * not supported.
+ */
+public class InMemoryImmuService extends ImmuServiceGrpc.ImmuServiceImplBase {
+
+  static final String DEFAULT_DATABASE = "defaultdb";
+
+  private static final Metadata.Key<String> AUTH_HEADER =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+  private static final Context.Key<String> TOKEN = Context.key("token");
+
+  private static final int DUMP_CHUNK_SIZE = 100;
+
+  private final Map<String, Database> databases = new ConcurrentHashMap<>();
+
+  // session token -> active database
+  private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+  public InMemoryImmuService() {
+    databases.put(DEFAULT_DATABASE, new Database());
+  }
+
+  /**
+   * Returns the interceptor binding the session token sent by clients to the current call. It
+   * must be installed for login and useDatabase to take effect.
+   */
+  public ServerInterceptor authInterceptor() {
+    return new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String authorization = headers.get(AUTH_HEADER);
+
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+          return next.startCall(call, headers);
+        }
+
+        Context ctx = Context.current().withValue(TOKEN, authorization.substring(7));
+        return Contexts.interceptCall(ctx, call, headers, next);
+      }
+    };
+  }
+
+  @Override
+  public void login(
+      ImmudbProto.LoginRequest request, StreamObserver<ImmudbProto.LoginResponse> responseObserver) {
+    String token = newSession(DEFAULT_DATABASE);
+    reply(responseObserver, ImmudbProto.LoginResponse.newBuilder().setToken(token).build());
+  }
+
+  @Override
+  public void logout(Empty request, StreamObserver<Empty> responseObserver) {
+    String token = TOKEN.get();
+
+    if (token != null) {
+      sessions.remove(token);
+    }
+
+    reply(responseObserver, Empty.getDefaultInstance());
+  }
+
+  @Override
+  public void health(Empty request, StreamObserver<ImmudbProto.HealthResponse> responseObserver) {
+    reply(
+        responseObserver,
+        ImmudbProto.HealthResponse.newBuilder().setStatus(true).setVersion("in-memory").build());
+  }
+
+  @Override
+  public void createDatabase(
+      ImmudbProto.Database request, StreamObserver<Empty> responseObserver) {
+    if (databases.putIfAbsent(request.getDatabasename(), new Database()) != null) {
+      responseObserver.onError(
+          Status.ALREADY_EXISTS.withDescription("database already exists").asRuntimeException());
+      return;
+    }
+
+    reply(responseObserver, Empty.getDefaultInstance());
+  }
+
+  @Override
+  public void useDatabase(
+      ImmudbProto.Database request, StreamObserver<ImmudbProto.UseDatabaseReply> responseObserver) {
+    if (!databases.containsKey(request.getDatabasename())) {
+      responseObserver.onError(
+          Status.NOT_FOUND.withDescription("database does not exist").asRuntimeException());
+      return;
+    }
+
+    String token = TOKEN.get();
+
+    if (token != null) {
+      sessions.remove(token);
+    }
+
+    reply(
+        responseObserver,
+        ImmudbProto.UseDatabaseReply.newBuilder()
+            .setToken(newSession(request.getDatabasename()))
+            .build());
+  }
+
+  @Override
+  public void databaseList(
+      Empty request, StreamObserver<ImmudbProto.DatabaseListResponse> responseObserver) {
+    ImmudbProto.DatabaseListResponse.Builder builder = ImmudbProto.DatabaseListResponse.newBuilder();
+
+    for (String name : databases.keySet()) {
+      builder.addDatabases(ImmudbProto.Database.newBuilder().setDatabasename(name));
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  @Override
+  public void currentRoot(Empty request, StreamObserver<ImmudbProto.Root> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.RootIndex.Builder payload = ImmudbProto.RootIndex.newBuilder();
+
+    synchronized (db) {
+      long size = db.tree.size();
+
+      if (size > 0) {
+        payload.setIndex(size - 1).setRoot(ByteString.copyFrom(db.tree.root(size)));
+      }
+    }
+
+    reply(responseObserver, ImmudbProto.Root.newBuilder().setPayload(payload).build());
+  }
+
+  @Override
+  public void set(ImmudbProto.KeyValue request, StreamObserver<ImmudbProto.Index> responseObserver) {
+    Database db = database();
+
+    long index;
+
+    synchronized (db) {
+      index = db.append(request.getKey(), request.getValue());
+    }
+
+    reply(responseObserver, ImmudbProto.Index.newBuilder().setIndex(index).build());
+  }
+
+  @Override
+  public void setBatch(
+      ImmudbProto.KVList request, StreamObserver<ImmudbProto.Index> responseObserver) {
+    Database db = database();
+
+    long index = 0;
+
+    synchronized (db) {
+      for (ImmudbProto.KeyValue kv : request.getKVsList()) {
+        index = db.append(kv.getKey(), kv.getValue());
+      }
+    }
+
+    reply(responseObserver, ImmudbProto.Index.newBuilder().setIndex(index).build());
+  }
+
+  @Override
+  public void safeSet(
+      ImmudbProto.SafeSetOptions request, StreamObserver<ImmudbProto.Proof> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.Proof proof;
+
+    synchronized (db) {
+      long index = db.append(request.getKv().getKey(), request.getKv().getValue());
+
+      try {
+        proof = db.proof(index, request.getRootIndex().getIndex());
+      } catch (StatusRuntimeException e) {
+        responseObserver.onError(e);
+        return;
+      }
+    }
+
+    reply(responseObserver, proof);
+  }
+
+  @Override
+  public void get(ImmudbProto.Key request, StreamObserver<ImmudbProto.Item> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.Item item;
+
+    synchronized (db) {
+      item = db.latest(request.getKey());
+    }
+
+    if (item == null) {
+      responseObserver.onError(keyNotFound());
+      return;
+    }
+
+    reply(responseObserver, item);
+  }
+
+  @Override
+  public void getBatch(
+      ImmudbProto.KeyList request, StreamObserver<ImmudbProto.ItemList> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.ItemList.Builder builder = ImmudbProto.ItemList.newBuilder();
+
+    synchronized (db) {
+      for (ImmudbProto.Key key : request.getKeysList()) {
+        ImmudbProto.Item item = db.latest(key.getKey());
+
+        if (item != null) {
+          builder.addItems(item);
+        }
+      }
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  @Override
+  public void safeGet(
+      ImmudbProto.SafeGetOptions request, StreamObserver<ImmudbProto.SafeItem> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.SafeItem safeItem;
+
+    synchronized (db) {
+      ImmudbProto.Item item = db.latest(request.getKey());
+
+      if (item == null) {
+        responseObserver.onError(keyNotFound());
+        return;
+      }
+
+      try {
+        safeItem =
+            ImmudbProto.SafeItem.newBuilder()
+                .setItem(item)
+                .setProof(db.proof(item.getIndex(), request.getRootIndex().getIndex()))
+                .build();
+      } catch (StatusRuntimeException e) {
+        responseObserver.onError(e);
+        return;
+      }
+    }
+
+    reply(responseObserver, safeItem);
+  }
+
+  @Override
+  public void byIndex(ImmudbProto.Index request, StreamObserver<ImmudbProto.Item> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.Item item = null;
+
+    synchronized (db) {
+      if (request.getIndex() < db.items.size()) {
+        item = db.items.get((int) request.getIndex());
+      }
+    }
+
+    if (item == null) {
+      responseObserver.onError(Status.NOT_FOUND.withDescription("index not found").asRuntimeException());
+      return;
+    }
+
+    reply(responseObserver, item);
+  }
+
+  @Override
+  public void bySafeIndex(
+      ImmudbProto.SafeIndexOptions request, StreamObserver<ImmudbProto.SafeItem> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.SafeItem safeItem;
+
+    synchronized (db) {
+      if (request.getIndex() >= db.items.size()) {
+        responseObserver.onError(Status.NOT_FOUND.withDescription("index not found").asRuntimeException());
+        return;
+      }
+
+      try {
+        safeItem =
+            ImmudbProto.SafeItem.newBuilder()
+                .setItem(db.items.get((int) request.getIndex()))
+                .setProof(db.proof(request.getIndex(), request.getRootIndex().getIndex()))
+                .build();
+      } catch (StatusRuntimeException e) {
+        responseObserver.onError(e);
+        return;
+      }
+    }
+
+    reply(responseObserver, safeItem);
+  }
+
+  @Override
+  public void history(ImmudbProto.Key request, StreamObserver<ImmudbProto.ItemList> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.ItemList.Builder builder = ImmudbProto.ItemList.newBuilder();
+
+    synchronized (db) {
+      for (ImmudbProto.Item item : db.items) {
+        if (item.getKey().equals(request.getKey())) {
+          builder.addItems(item);
+        }
+      }
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  @Override
+  public void scan(
+      ImmudbProto.ScanOptions request, StreamObserver<ImmudbProto.ItemList> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.ItemList.Builder builder = ImmudbProto.ItemList.newBuilder();
+
+    synchronized (db) {
+      NavigableMap<ByteString, Integer> keys = db.latest;
+
+      if (!request.getOffset().isEmpty()) {
+        keys =
+            request.getReverse()
+                ? keys.headMap(request.getOffset(), false)
+                : keys.tailMap(request.getOffset(), false);
+      }
+
+      if (request.getReverse()) {
+        keys = keys.descendingMap();
+      }
+
+      for (Map.Entry<ByteString, Integer> entry : keys.entrySet()) {
+        if (request.getLimit() > 0 && builder.getItemsCount() >= request.getLimit()) {
+          break;
+        }
+
+        if (entry.getKey().startsWith(request.getPrefix())) {
+          builder.addItems(db.items.get(entry.getValue()));
+        }
+      }
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  @Override
+  public void iScan(
+      ImmudbProto.IScanOptions request, StreamObserver<ImmudbProto.Page> responseObserver) {
+    if (request.getPageNumber() < 1 || request.getPageSize() < 1) {
+      responseObserver.onError(
+          Status.INVALID_ARGUMENT.withDescription("illegal page").asRuntimeException());
+      return;
+    }
+
+    Database db = database();
+
+    ImmudbProto.Page.Builder builder = ImmudbProto.Page.newBuilder();
+
+    synchronized (db) {
+      long from = (request.getPageNumber() - 1) * request.getPageSize();
+      long to = Math.min(from + request.getPageSize(), db.items.size());
+
+      for (long i = from; i < to; i++) {
+        builder.addItems(db.items.get((int) i));
+      }
+
+      builder.setMore(to < db.items.size());
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  @Override
+  public void zAdd(ImmudbProto.ZAddOptions request, StreamObserver<ImmudbProto.Index> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.Item item;
+
+    synchronized (db) {
+      item = db.latest(request.getKey());
+
+      if (item != null) {
+        db.sets
+            .computeIfAbsent(request.getSet(), set -> new HashMap<>())
+            .put(request.getKey(), request.getScore());
+      }
+    }
+
+    if (item == null) {
+      responseObserver.onError(keyNotFound());
+      return;
+    }
+
+    reply(responseObserver, ImmudbProto.Index.newBuilder().setIndex(item.getIndex()).build());
+  }
+
+  /** Lists the members of a set by score, then key, resuming after the member given as offset. */
+  @Override
+  public void zScan(
+      ImmudbProto.ZScanOptions request, StreamObserver<ImmudbProto.ItemList> responseObserver) {
+    Database db = database();
+
+    ImmudbProto.ItemList.Builder builder = ImmudbProto.ItemList.newBuilder();
+
+    synchronized (db) {
+      List<Map.Entry<ByteString, Double>> members =
+          new ArrayList<>(db.sets.getOrDefault(request.getSet(), Collections.emptyMap()).entrySet());
+
+      Comparator<Map.Entry<ByteString, Double>> order =
+          Map.Entry.<ByteString, Double>comparingByValue()
+              .thenComparing(Map.Entry.comparingByKey(ByteString.unsignedLexicographicalComparator()));
+
+      members.sort(request.getReverse() ? order.reversed() : order);
+
+      int from = 0;
+
+      if (!request.getOffset().isEmpty()) {
+        from = members.size();
+
+        for (int i = 0; i < members.size(); i++) {
+          if (members.get(i).getKey().equals(request.getOffset())) {
+            from = i + 1;
+            break;
+          }
+        }
+      }
+
+      for (int i = from; i < members.size(); i++) {
+        if (request.getLimit() > 0 && builder.getItemsCount() >= request.getLimit()) {
+          break;
+        }
+
+        builder.addItems(db.latest(members.get(i).getKey()));
+      }
+    }
+
+    reply(responseObserver, builder.build());
+  }
+
+  /** Streams the database in chunks, honouring the client's flow control. */
+  @Override
+  public void dump(Empty request, StreamObserver<ImmudbProto.KVList> responseObserver) {
+    Database db = database();
+
+    List<ImmudbProto.Item> snapshot;
+
+    synchronized (db) {
+      snapshot = new ArrayList<>(db.items);
+    }
+
+    ServerCallStreamObserver<ImmudbProto.KVList> call =
+        (ServerCallStreamObserver<ImmudbProto.KVList>) responseObserver;
+
+    int[] sent = {0};
+    boolean[] completed = {false};
+
+    Runnable drain =
+        () -> {
+          while (!completed[0] && !call.isCancelled()) {
+            // completing needs no demand from the client, unlike sending
+            if (sent[0] >= snapshot.size()) {
+              completed[0] = true;
+              call.onCompleted();
+              return;
+            }
+
+            if (!call.isReady()) {
+              return;
+            }
+
+            ImmudbProto.KVList.Builder chunk = ImmudbProto.KVList.newBuilder();
+
+            for (int i = sent[0]; i < Math.min(sent[0] + DUMP_CHUNK_SIZE, snapshot.size()); i++) {
+              ImmudbProto.Item item = snapshot.get(i);
+              chunk.addKVs(
+                  ImmudbProto.KeyValue.newBuilder().setKey(item.getKey()).setValue(item.getValue()));
+            }
+
+            sent[0] += chunk.getKVsCount();
+            call.onNext(chunk.build());
+          }
+        };
+
+    // the handler is only invoked from the call's serialized executor, as is this method
+    call.setOnReadyHandler(drain);
+    drain.run();
+  }
+
+  private Database database() {
+    String token = TOKEN.get();
+    String name = token == null ? null : sessions.get(token);
+
+    Database db = databases.get(name == null ? DEFAULT_DATABASE : name);
+
+    if (db == null) {
+      throw Status.NOT_FOUND.withDescription("database does not exist").asRuntimeException();
+    }
+
+    return db;
+  }
+
+  private String newSession(String database) {
+    String token = UUID.randomUUID().toString();
+    sessions.put(token, database);
+    return token;
+  }
+
+  private static StatusRuntimeException keyNotFound() {
+    return Status.NOT_FOUND.withDescription("key not found").asRuntimeException();
+  }
+
+  private static <T> void reply(StreamObserver<T> responseObserver, T response) {
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
+  private static class Database {
+
+    private final MerkleTree tree = new MerkleTree();
+
+    private final List<ImmudbProto.Item> items = new ArrayList<>();
+
+    // key -> position of its latest item
+    private final NavigableMap<ByteString, Integer> latest =
+        new TreeMap<>(ByteString.unsignedLexicographicalComparator());
+
+    // set -> member key -> score
+    private final Map<ByteString, Map<ByteString, Double>> sets = new HashMap<>();
+
+    long append(ByteString key, ByteString value) {
+      int index = items.size();
+
+      ImmudbProto.Item item =
+          ImmudbProto.Item.newBuilder().setKey(key).setValue(value).setIndex(index).build();
+
+      tree.add(item);
+      items.add(item);
+      latest.put(key, index);
+
+      return index;
+    }
+
+    ImmudbProto.Item latest(ByteString key) {
+      Integer index = latest.get(key);
+      return index == null ? null : items.get(index);
+    }
+
+    ImmudbProto.Proof proof(long index, long rootIndex) {
+      long size = tree.size();
+
+      if (rootIndex >= size) {
+        throw Status.INVALID_ARGUMENT
+            .withDescription("root index is ahead of the current root")
+            .asRuntimeException();
+      }
+
+      return tree.proof(index, size, rootIndex + 1);
+    }
+  }
+}
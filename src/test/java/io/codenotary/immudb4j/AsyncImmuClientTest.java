@@ -0,0 +1,73 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class AsyncImmuClientTest extends ImmuClientIntegrationTest {
+
+  @Test
+  public void testAsyncGetAndSet() throws ExecutionException, InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    AsyncImmuClient asyncClient = immuClient.async();
+
+    byte[] v0 = new byte[] {0, 1, 2, 3};
+    byte[] v1 = new byte[] {3, 2, 1, 0};
+
+    CompletableFuture.allOf(
+            asyncClient.set("ak0", v0),
+            asyncClient.safeSet("ak1", v1))
+        .get();
+
+    Assert.assertEquals(asyncClient.get("ak0").get(), v0);
+    Assert.assertEquals(asyncClient.safeGet("ak0").get(), v0);
+    Assert.assertEquals(asyncClient.safeGet("ak1").get(), v1);
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testAsyncConcurrentSafeSet() throws ExecutionException, InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    AsyncImmuClient asyncClient = immuClient.async();
+
+    final int keyCount = 100;
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>(keyCount);
+
+    for (int i = 0; i < keyCount; i++) {
+      futures.add(asyncClient.safeSet("ack" + i, new byte[] {(byte) i}));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+    for (int i = 0; i < keyCount; i++) {
+      Assert.assertEquals(asyncClient.safeGet("ack" + i).get(), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+}
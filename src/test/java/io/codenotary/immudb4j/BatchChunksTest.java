@@ -0,0 +1,90 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchChunksTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testChunksBoundedBySizeAndBytes() {
+    KVList.KVListBuilder builder = KVList.newBuilder();
+
+    for (int i = 0; i < 25; i++) {
+      builder.add(("k" + i).getBytes(), new byte[i == 7 ? 500 : 10]);
+    }
+
+    List<ImmudbProto.KVList> chunks = BatchChunks.of(builder.build(), 4, 100);
+
+    int count = 0;
+
+    for (ImmudbProto.KVList chunk : chunks) {
+      Assert.assertTrue(chunk.getKVsCount() <= 4);
+      Assert.assertTrue(chunk.getKVsCount() == 1 || chunk.getSerializedSize() <= 100);
+
+      for (ImmudbProto.KeyValue kv : chunk.getKVsList()) {
+        Assert.assertEquals(kv.getKey().toStringUtf8(), "k" + count++);
+      }
+    }
+
+    Assert.assertEquals(count, 25);
+    Assert.assertEquals(BatchChunks.of(KVList.newBuilder().build(), 4, 100).size(), 1);
+  }
+
+  @Test
+  public void testChunkedSetAllAndGetAll() {
+    ImmuClient chunkingClient = ImmuClient.newBuilder()
+            .setChannel(server.newChannel())
+            .setMaxBatchSize(16)
+            .setMaxBatchBytes(256)
+            .build();
+
+    try {
+      chunkingClient.login("immudb", "immudb");
+      chunkingClient.useDatabase("defaultdb");
+
+      KVList.KVListBuilder builder = KVList.newBuilder();
+      List<String> keys = new ArrayList<>();
+
+      for (int i = 0; i < 200; i++) {
+        builder.add("ck" + i, new byte[] {(byte) i});
+        keys.add("ck" + (199 - i));
+      }
+
+      chunkingClient.setAll(builder.build());
+
+      List<KV> kvs = chunkingClient.getAll(keys);
+
+      Assert.assertEquals(kvs.size(), 200);
+
+      for (int i = 0; i < 200; i++) {
+        Assert.assertEquals(new String(kvs.get(i).getKey()), "ck" + (199 - i));
+        Assert.assertEquals(kvs.get(i).getValue(), new byte[] {(byte) (199 - i)});
+      }
+
+      Assert.assertEquals(chunkingClient.async().getAll(keys).join().size(), 200);
+
+      chunkingClient.logout();
+    } finally {
+      chunkingClient.shutdown();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import io.grpc.ManagedChannel;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class BatchWriterTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testBatchedSet() throws ExecutionException, InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 250;
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>(keyCount);
+
+    try (BatchWriter writer = BatchWriter.newBuilder(immuClient)
+            .setMaxBatchSize(100)
+            .setMaxDelayMillis(10)
+            .build()) {
+
+      for (int i = 0; i < keyCount; i++) {
+        futures.add(writer.set("bw" + i, new byte[] {(byte) i}));
+      }
+    }
+
+    Set<Long> indexes = new HashSet<>();
+
+    for (CompletableFuture<Long> future : futures) {
+      indexes.add(future.get());
+    }
+
+    Assert.assertEquals(indexes.size(), keyCount);
+
+    for (int i = 0; i < keyCount; i++) {
+      Assert.assertEquals(immuClient.get("bw" + i), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testIndexesMapToWrites() throws ExecutionException, InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 50;
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>(keyCount);
+
+    try (BatchWriter writer = BatchWriter.newBuilder(immuClient).setMaxBatchSize(8).build()) {
+      for (int i = 0; i < keyCount; i++) {
+        futures.add(writer.set("bwi" + i, new byte[] {(byte) i}));
+      }
+    }
+
+    // calls without a session token read the default database
+    ManagedChannel channel = server.newChannel();
+
+    try {
+      ImmuServiceGrpc.ImmuServiceBlockingStub stub = ImmuServiceGrpc.newBlockingStub(channel);
+
+      for (int i = 0; i < keyCount; i++) {
+        ImmudbProto.Item item =
+            stub.byIndex(ImmudbProto.Index.newBuilder().setIndex(futures.get(i).get()).build());
+
+        Assert.assertEquals(item.getKey().toStringUtf8(), "bwi" + i);
+        Assert.assertEquals(ImmuClient.unwrapContent(item.getValue()).toByteArray(), new byte[] {(byte) i});
+      }
+    } finally {
+      channel.shutdown();
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testSetAfterClose() throws InterruptedException {
+    BatchWriter writer = BatchWriter.newBuilder(immuClient).build();
+    writer.close();
+
+    CompletableFuture<Long> future = writer.set("bwc", new byte[] {0});
+
+    try {
+      future.get();
+      Assert.fail("Write accepted after close");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.codenotary.immudb4j.crypto.VerificationException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class ByteStringKVTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testContentRoundTrip() {
+    byte[] value = new byte[64 * 1024];
+    Arrays.fill(value, (byte) 7);
+
+    ByteString wrapped = ImmuClient.wrapContent(value);
+
+    Assert.assertEquals(ImmuClient.unwrapContent(wrapped).toByteArray(), value);
+    Assert.assertEquals(ImmuClient.unwrapContent(wrapped.toByteArray()), value);
+  }
+
+  @Test
+  public void testViews() {
+    ByteStringKV kv = ByteStringKV.wrap("k".getBytes(), new byte[] {1, 2, 3});
+
+    ByteBuffer buffer = kv.getValueBuffer();
+
+    Assert.assertTrue(buffer.isReadOnly());
+    Assert.assertEquals(buffer.remaining(), 3);
+    Assert.assertEquals(kv.getValue(), new byte[] {1, 2, 3});
+    Assert.assertEquals(new KVPair("k".getBytes(), new byte[] {4}).getValueBytes().byteAt(0), 4);
+  }
+
+  @Test
+  public void testByteStringWrites() throws VerificationException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    immuClient.set(ByteString.copyFromUtf8("bs1"), UnsafeByteOperations.unsafeWrap(new byte[] {1}));
+    immuClient.safeSet(ByteString.copyFromUtf8("bs2"), UnsafeByteOperations.unsafeWrap(new byte[] {2}));
+
+    Assert.assertEquals(immuClient.get("bs1"), new byte[] {1});
+    Assert.assertEquals(immuClient.safeGet("bs2"), new byte[] {2});
+
+    immuClient.setAll(KVList.newBuilder().add(ByteStringKV.wrap("bs3".getBytes(), new byte[] {3})).build());
+
+    List<KV> kvs = immuClient.getAll(Arrays.asList("bs1", "bs3"));
+
+    Assert.assertEquals(kvs.get(0).getValueBytes(), ByteString.copyFrom(new byte[] {1}));
+    Assert.assertEquals(kvs.get(1).getValue(), new byte[] {3});
+
+    immuClient.logout();
+  }
+}
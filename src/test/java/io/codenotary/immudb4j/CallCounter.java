@@ -0,0 +1,54 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the calls made through a channel, by method name.
+ */
+class CallCounter implements ClientInterceptor {
+
+  private final ConcurrentMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+  private final AtomicInteger total = new AtomicInteger();
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    counts.computeIfAbsent(method.getFullMethodName().replaceAll(".*/", ""), m -> new AtomicInteger())
+        .incrementAndGet();
+    total.incrementAndGet();
+    return next.newCall(method, callOptions);
+  }
+
+  int count(String method) {
+    AtomicInteger count = counts.get(method);
+    return count == null ? 0 : count.get();
+  }
+
+  int total() {
+    return total.get();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.testing.InMemoryImmuService;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.NettyServerBuilder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChannelPoolTest {
+
+  private final ConcurrentMap<SocketAddress, AtomicInteger> callsPerConnection = new ConcurrentHashMap<>();
+
+  private Server server;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    InMemoryImmuService service = new InMemoryImmuService();
+
+    // counts the calls served over each client connection
+    ServerInterceptor counter = new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        SocketAddress remote = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        callsPerConnection.computeIfAbsent(remote, address -> new AtomicInteger()).incrementAndGet();
+        return next.startCall(call, headers);
+      }
+    };
+
+    server = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0))
+            .addService(ServerInterceptors.intercept(service, service.authInterceptor(), counter))
+            .build()
+            .start();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testRequestsSpreadOverPooledChannels() {
+    ImmuClient client = ImmuClient.newBuilder()
+            .setServerUrl("localhost")
+            .setServerPort(server.getPort())
+            .setChannelPoolSize(4)
+            .build();
+
+    client.login("immudb", "immudb");
+    client.useDatabase("defaultdb");
+
+    for (int i = 0; i < 16; i++) {
+      client.set("pooled" + i, ("v" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    for (int i = 0; i < 16; i++) {
+      Assert.assertEquals(client.get("pooled" + i), ("v" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    client.logout();
+
+    client.shutdown();
+
+    Assert.assertTrue(client.isShutdown());
+
+    // each pooled channel has its own connection, and the 32 reads and writes are spread evenly
+    Assert.assertEquals(callsPerConnection.size(), 4);
+
+    for (AtomicInteger calls : callsPerConnection.values()) {
+      Assert.assertTrue(calls.get() >= 8, "Unbalanced pool: " + callsPerConnection);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidPoolSize() {
+    ImmuClient.newBuilder().setChannelPoolSize(0);
+  }
+
+}
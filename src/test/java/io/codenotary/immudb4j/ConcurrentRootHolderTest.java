@@ -0,0 +1,69 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class ConcurrentRootHolderTest {
+
+  @Test
+  public void testRootsOnlyAdvance() {
+    ConcurrentRootHolder rootHolder = new ConcurrentRootHolder();
+
+    Assert.assertNull(rootHolder.getRoot("defaultdb"));
+
+    rootHolder.setRoot(new Root("defaultdb", 5, new byte[32]));
+    rootHolder.setRoot(new Root("defaultdb", 3, new byte[32]));
+    rootHolder.setRoot(new Root("otherdb", 1, new byte[32]));
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getIndex(), 5);
+    Assert.assertEquals(rootHolder.getRoot("otherdb").getIndex(), 1);
+
+    rootHolder.setRoot(new Root("defaultdb", 6, new byte[32]));
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getIndex(), 6);
+  }
+
+  @Test
+  public void testConcurrentUpdatesKeepHighestIndex() throws InterruptedException {
+    ConcurrentRootHolder rootHolder = new ConcurrentRootHolder();
+
+    final int threadCount = 8;
+    final int rootCount = 10000;
+
+    CountDownLatch latch = new CountDownLatch(threadCount);
+
+    for (int t = 0; t < threadCount; t++) {
+      final int offset = t;
+
+      new Thread(() -> {
+        for (int i = offset; i < rootCount; i += threadCount) {
+          rootHolder.setRoot(new Root("defaultdb", i, new byte[32]));
+        }
+        latch.countDown();
+      }).start();
+    }
+
+    latch.await();
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getIndex(), rootCount - 1);
+  }
+
+}
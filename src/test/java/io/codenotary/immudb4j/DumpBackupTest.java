@@ -0,0 +1,154 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+public class DumpBackupTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testDumpBackup() throws Exception {
+    immuClient.login("immudb", "immudb");
+    immuClient.createDatabase("backupdb");
+    immuClient.useDatabase("backupdb");
+
+    final int keyCount = 120;
+
+    for (int i = 0; i < keyCount; i++) {
+      immuClient.set("b" + i, new byte[] {(byte) i});
+    }
+
+    Path file = Files.createTempFile("immudb4j", ".dump.gz");
+
+    try {
+      DumpBackup.Stats stats = DumpBackup.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .build()
+              .start()
+              .get(30, TimeUnit.SECONDS);
+
+      Assert.assertEquals(stats.getItems(), keyCount);
+      Assert.assertTrue(stats.getBytes() > 0);
+
+      int items = 0;
+
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+        ImmudbProto.KVList kvList;
+        while ((kvList = ImmudbProto.KVList.parseDelimitedFrom(in)) != null) {
+          items += kvList.getKVsCount();
+        }
+      }
+
+      Assert.assertEquals(items, keyCount);
+    } finally {
+      Files.delete(file);
+    }
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  @Test
+  public void testDumpBackupCancellation() throws Exception {
+    immuClient.login("immudb", "immudb");
+    immuClient.createDatabase("cancelbackupdb");
+    immuClient.useDatabase("cancelbackupdb");
+
+    for (int i = 0; i < 120; i++) {
+      immuClient.set("c" + i, new byte[] {(byte) i});
+    }
+
+    Path file = Files.createTempFile("immudb4j", ".dump.gz");
+
+    try {
+      AtomicReference<CompletableFuture<DumpBackup.Stats>> backup = new AtomicReference<>();
+      CountDownLatch started = new CountDownLatch(1);
+
+      // cancels the backup once its first message has been written
+      backup.set(DumpBackup.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .setProgressIntervalMillis(0)
+              .setProgressListener(stats -> {
+                try {
+                  started.await();
+                } catch (InterruptedException e) {
+                  throw new RuntimeException(e);
+                }
+                backup.get().cancel(false);
+              })
+              .build()
+              .start());
+
+      started.countDown();
+
+      try {
+        backup.get().get(30, TimeUnit.SECONDS);
+        Assert.fail("Backup was not cancelled");
+      } catch (CancellationException expected) {
+        // the file has been closed while cancelling
+      }
+
+      Assert.assertFalse(isOpen(file));
+    } finally {
+      Files.delete(file);
+    }
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  // whether this process holds a descriptor on the given file, as far as /proc tells
+  private static boolean isOpen(Path file) throws IOException {
+    Path fds = Paths.get("/proc/self/fd");
+
+    if (!Files.isDirectory(fds)) {
+      return false;
+    }
+
+    Path realFile = file.toRealPath();
+
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(fds)) {
+      for (Path fd : stream) {
+        try {
+          if (Files.readSymbolicLink(fd).equals(realFile)) {
+            return true;
+          }
+        } catch (IOException e) {
+          // closed in the meantime
+        }
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DumpRestoreTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testDumpRestore() throws Exception {
+    immuClient.login("immudb", "immudb");
+    immuClient.createDatabase("restoresrcdb");
+    immuClient.useDatabase("restoresrcdb");
+
+    final int keyCount = 120;
+
+    Path file = backup("r", keyCount);
+
+    try {
+      immuClient.createDatabase("restoredb");
+      immuClient.useDatabase("restoredb");
+
+      DumpBackup.Stats restored = DumpRestore.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .setMaxBatchSize(7)
+              .setMaxBatchBytes(128)
+              .setMaxInFlight(3)
+              .build()
+              .start()
+              .get(30, TimeUnit.SECONDS);
+
+      Assert.assertEquals(restored.getItems(), keyCount);
+
+      for (int i = 0; i < keyCount; i++) {
+        Assert.assertEquals(immuClient.get("r" + i), new byte[] {(byte) i});
+      }
+
+      immuClient.createDatabase("resumedb");
+      immuClient.useDatabase("resumedb");
+
+      restored = DumpRestore.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .setResumeFrom(100)
+              .build()
+              .run();
+
+      Assert.assertEquals(restored.getItems(), keyCount - 100);
+      Assert.assertEquals(count(immuClient.dump()), keyCount - 100);
+    } finally {
+      Files.delete(file);
+    }
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  @Test
+  public void testDumpRestoreFailure() throws Exception {
+    immuClient.login("immudb", "immudb");
+    immuClient.createDatabase("failuresrcdb");
+    immuClient.useDatabase("failuresrcdb");
+
+    final int keyCount = 60;
+
+    Path file = backup("f", keyCount);
+
+    ImmuClient restoringClient = ImmuClient.newBuilder()
+            .setChannel(new InterceptedChannel(server.newChannel(), new ReorderingInterceptor()))
+            .build();
+
+    try {
+      restoringClient.login("immudb", "immudb");
+      restoringClient.createDatabase("failuredb");
+      restoringClient.useDatabase("failuredb");
+
+      // the fourth chunk is acknowledged before the second one, then the third one fails
+      try {
+        DumpRestore.newBuilder(restoringClient)
+                .setFile(file)
+                .setCompressed(true)
+                .setMaxBatchSize(10)
+                .setMaxInFlight(3)
+                .build()
+                .run();
+        Assert.fail("Restore did not fail");
+      } catch (RestoreException e) {
+        Assert.assertEquals(e.getAcknowledgedItems(), 20);
+        Assert.assertTrue(e.getLastIndex() >= 0);
+        Assert.assertEquals(Status.fromThrowable(e.getCause()).getCode(), Status.Code.UNAVAILABLE);
+      }
+
+      immuClient.useDatabase("failuredb");
+
+      DumpBackup.Stats restored = DumpRestore.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .setMaxBatchSize(10)
+              .setResumeFrom(20)
+              .build()
+              .run();
+
+      Assert.assertEquals(restored.getItems(), keyCount - 20);
+
+      for (int i = 0; i < keyCount; i++) {
+        Assert.assertEquals(immuClient.get("f" + i), new byte[] {(byte) i});
+      }
+
+      restoringClient.logout();
+    } finally {
+      restoringClient.shutdown();
+      Files.delete(file);
+    }
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  // writes the given number of keys to the active database and backs it up to a new file
+  private Path backup(String prefix, int keyCount) throws Exception {
+    for (int i = 0; i < keyCount; i++) {
+      immuClient.set(prefix + i, new byte[] {(byte) i});
+    }
+
+    Path file = Files.createTempFile("immudb4j", ".dump.gz");
+
+    try {
+      DumpBackup.newBuilder(immuClient)
+              .setFile(file)
+              .setCompressed(true)
+              .build()
+              .start()
+              .get(30, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      Files.delete(file);
+      throw e;
+    }
+
+    return file;
+  }
+
+  /**
+   * Holds the response to the second SetBatch call and the start of the third one until the
+   * fourth one has been acknowledged, then lets the second one through and fails the third one.
+   */
+  private static class ReorderingInterceptor implements ClientInterceptor {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final CompletableFuture<Runnable> secondClose = new CompletableFuture<>();
+
+    private final CompletableFuture<ClientCall.Listener<?>> third = new CompletableFuture<>();
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      if (!method.getFullMethodName().endsWith("/SetBatch")) {
+        return next.newCall(method, callOptions);
+      }
+
+      int call = calls.incrementAndGet();
+
+      if (call == 3) {
+        // never reaches the server
+        return new ClientCall<ReqT, RespT>() {
+          @Override
+          public void start(Listener<RespT> listener, Metadata headers) {
+            third.complete(listener);
+          }
+
+          @Override
+          public void request(int numMessages) {
+          }
+
+          @Override
+          public void cancel(String message, Throwable cause) {
+          }
+
+          @Override
+          public void halfClose() {
+          }
+
+          @Override
+          public void sendMessage(ReqT message) {
+          }
+        };
+      }
+
+      return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+          super.start(
+              new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(listener) {
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                  if (call == 2) {
+                    secondClose.complete(() -> super.onClose(status, trailers));
+                    return;
+                  }
+
+                  super.onClose(status, trailers);
+
+                  if (call == 4) {
+                    secondClose.thenAcceptBoth(third, (close, listener) -> {
+                      close.run();
+                      listener.onClose(Status.UNAVAILABLE, new Metadata());
+                    });
+                  }
+                }
+              },
+              headers);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class FileRootHolderTest {
+
+  @Test
+  public void testDeferredRootsArePersistedOnFlush() throws IOException {
+    String rootsFolder = Files.createTempDirectory("roots").resolve("roots").toString();
+
+    FileRootHolder rootHolder = FileRootHolder.newBuilder()
+            .setRootsFolder(rootsFolder)
+            .setDurability(FileRootHolder.Durability.NONE)
+            .build();
+
+    rootHolder.setRoot(new Root("defaultdb", 1, new byte[32]));
+    rootHolder.setRoot(new Root("defaultdb", 2, new byte[32]));
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getIndex(), 2);
+    Assert.assertNull(FileRootHolder.newBuilder().setRootsFolder(rootsFolder).build().getRoot("defaultdb"));
+
+    rootHolder.flush();
+
+    Assert.assertEquals(FileRootHolder.newBuilder().setRootsFolder(rootsFolder).build().getRoot("defaultdb").getIndex(), 2);
+  }
+
+  @Test
+  public void testIntervalRootsArePersistedOnClose() throws IOException {
+    String rootsFolder = Files.createTempDirectory("roots").resolve("roots").toString();
+
+    FileRootHolder rootHolder = FileRootHolder.newBuilder()
+            .setRootsFolder(rootsFolder)
+            .setDurability(FileRootHolder.Durability.INTERVAL)
+            .setFlushIntervalMillis(60000)
+            .build();
+
+    rootHolder.setRoot(new Root("defaultdb", 7, new byte[32]));
+    rootHolder.close();
+
+    Assert.assertEquals(FileRootHolder.newBuilder().setRootsFolder(rootsFolder).build().getRoot("defaultdb").getIndex(), 7);
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import io.codenotary.immudb4j.crypto.VerificationException;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class GroupCommitWriterTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testGroupCommit() throws ExecutionException, InterruptedException, VerificationException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 1000;
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>(keyCount);
+
+    try (GroupCommitWriter writer = GroupCommitWriter.newBuilder(immuClient)
+            .setMaxGroupSize(50)
+            .build()) {
+
+      for (int i = 0; i < keyCount; i++) {
+        futures.add(writer.safeSet("gc" + i, new byte[] {(byte) i}));
+      }
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+    for (int i = 0; i < keyCount; i++) {
+      Assert.assertEquals(immuClient.safeGet("gc" + i), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testOneConsistencyCheckPerGroup() throws ExecutionException, InterruptedException, VerificationException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    // a trusted root past the first entry, so that consistency has to be checked
+    immuClient.safeSet("gcc", new byte[] {0});
+    immuClient.safeSet("gcc", new byte[] {1});
+
+    final int groupCount = 4;
+    final int groupSize = 25;
+
+    try (GroupCommitWriter writer = GroupCommitWriter.newBuilder(immuClient)
+            .setMaxGroupSize(groupSize)
+            .setMaxDelayMillis(60_000)
+            .build()) {
+
+      for (int g = 0; g < groupCount; g++) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(groupSize);
+
+        for (int i = 0; i < groupSize; i++) {
+          futures.add(writer.safeSet("gcc" + g + "_" + i, new byte[] {(byte) i}));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+        Assert.assertEquals(writer.getConsistencyChecks(), g + 1);
+      }
+    }
+
+    for (int g = 0; g < groupCount; g++) {
+      for (int i = 0; i < groupSize; i++) {
+        Assert.assertEquals(immuClient.safeGet("gcc" + g + "_" + i), new byte[] {(byte) i});
+      }
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testForeignWriteWithinGroup() throws ExecutionException, InterruptedException, VerificationException {
+    // calls without a session token write to the default database
+    ManagedChannel foreignChannel = server.newChannel();
+    ImmuServiceGrpc.ImmuServiceBlockingStub foreign = ImmuServiceGrpc.newBlockingStub(foreignChannel);
+
+    CallCounter counter = new CallCounter();
+    SequencingInterceptor sequencing =
+        new SequencingInterceptor(
+            5,
+            () -> foreign.set(
+                ImmudbProto.KeyValue.newBuilder()
+                    .setKey(ByteString.copyFromUtf8("gcfw"))
+                    .setValue(ImmuClient.wrapContent(ByteString.copyFromUtf8("foreign")))
+                    .build()));
+
+    ImmuClient writingClient = ImmuClient.newBuilder()
+            .setChannel(new InterceptedChannel(server.newChannel(), counter, sequencing))
+            .build();
+
+    try {
+      writingClient.login("immudb", "immudb");
+      writingClient.useDatabase("defaultdb");
+
+      writingClient.safeSet("gcf", new byte[] {0});
+      writingClient.safeSet("gcf", new byte[] {1});
+
+      final int groupSize = 10;
+
+      List<CompletableFuture<Long>> futures = new ArrayList<>(groupSize);
+
+      try (GroupCommitWriter writer = GroupCommitWriter.newBuilder(writingClient)
+              .setMaxGroupSize(groupSize)
+              .setMaxDelayMillis(60_000)
+              .build()) {
+
+        sequencing.enabled = true;
+
+        for (int i = 0; i < groupSize; i++) {
+          futures.add(writer.safeSet("gcf" + i, new byte[] {(byte) i}));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+        // the four entries written before the foreign one are proven at the highest root instead
+        Assert.assertEquals(counter.count("BySafeIndex"), 4);
+        Assert.assertEquals(writer.getConsistencyChecks(), 1 + 4);
+      }
+
+      for (int i = 0; i < groupSize; i++) {
+        ImmudbProto.Item item =
+            foreign.byIndex(ImmudbProto.Index.newBuilder().setIndex(futures.get(i).get()).build());
+
+        Assert.assertEquals(item.getKey().toStringUtf8(), "gcf" + i);
+        Assert.assertEquals(writingClient.safeGet("gcf" + i), new byte[] {(byte) i});
+      }
+
+      writingClient.logout();
+    } finally {
+      writingClient.shutdown();
+      foreignChannel.shutdown();
+    }
+  }
+
+  /**
+   * When enabled, starts each SafeSet call once the previous one has completed, and makes a
+   * foreign write before the given one.
+   */
+  private static class SequencingInterceptor implements ClientInterceptor {
+
+    private final int foreignBefore;
+
+    private final Runnable foreignWrite;
+
+    private volatile boolean enabled;
+
+    private int calls;
+
+    private CountDownLatch previous;
+
+    SequencingInterceptor(int foreignBefore, Runnable foreignWrite) {
+      this.foreignBefore = foreignBefore;
+      this.foreignWrite = foreignWrite;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+
+      if (!enabled || !method.getFullMethodName().endsWith("/SafeSet")) {
+        return call;
+      }
+
+      return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(call) {
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+          CountDownLatch completed = new CountDownLatch(1);
+          CountDownLatch before;
+          int position;
+
+          synchronized (SequencingInterceptor.this) {
+            before = previous;
+            previous = completed;
+            position = ++calls;
+          }
+
+          if (before != null) {
+            try {
+              Assert.assertTrue(before.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+
+          if (position == foreignBefore) {
+            foreignWrite.run();
+          }
+
+          super.start(
+              new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(listener) {
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                  completed.countDown();
+                  super.onClose(status, trailers);
+                }
+              },
+              headers);
+        }
+      };
+    }
+  }
+}
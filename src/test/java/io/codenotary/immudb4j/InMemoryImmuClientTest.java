@@ -0,0 +1,99 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.testing.InMemoryImmuServer;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tests of a class against their own {@link InMemoryImmuServer}, with a client using an
+ * in-process channel.
+ */
+public abstract class InMemoryImmuClientTest {
+
+  protected InMemoryImmuServer server;
+
+  protected ImmuClient immuClient;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    server = InMemoryImmuServer.start();
+
+    immuClient = ImmuClient.newBuilder()
+            .setChannel(server.newChannel())
+            .setScanPageSize(16)
+            .build();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    immuClient.shutdown();
+    server.close();
+  }
+
+  protected static int count(Publisher<KV> publisher) throws InterruptedException {
+    AtomicInteger count = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    publisher.subscribe(new Subscriber<KV>() {
+      private Subscription subscription;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(KV kv) {
+        count.incrementAndGet();
+        subscription.request(1);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        latch.countDown();
+      }
+
+      @Override
+      public void onComplete() {
+        latch.countDown();
+      }
+    });
+
+    Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+    return count.get();
+  }
+
+  protected static List<KV> collect(Publisher<KV> publisher) throws InterruptedException {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.request(Long.MAX_VALUE);
+    return subscriber.expectCompletion();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.VerificationException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class InMemoryImmuServerTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testSafeGetAndSet() throws VerificationException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    for (int i = 0; i < 100; i++) {
+      immuClient.set("mk" + i, new byte[] {(byte) i});
+      immuClient.safeSet("msk" + i, new byte[] {(byte) i});
+    }
+
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(immuClient.get("mk" + i), new byte[] {(byte) i});
+      Assert.assertEquals(immuClient.safeGet("mk" + i), new byte[] {(byte) i});
+      Assert.assertEquals(immuClient.safeGet("msk" + i), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testAsyncAndBatchedWrites() throws ExecutionException, InterruptedException, TimeoutException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 300;
+
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+
+    try (BatchWriter batchWriter = BatchWriter.newBuilder(immuClient).setMaxBatchSize(64).build();
+         GroupCommitWriter groupWriter = GroupCommitWriter.newBuilder(immuClient).setMaxGroupSize(32).build()) {
+
+      for (int i = 0; i < keyCount; i++) {
+        futures.add(immuClient.async().safeSet("mak" + i, new byte[] {(byte) i}));
+        futures.add(batchWriter.set("mbk" + i, new byte[] {(byte) i}));
+        futures.add(groupWriter.safeSet("mgk" + i, new byte[] {(byte) i}));
+      }
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+    for (int i = 0; i < keyCount; i++) {
+      Assert.assertEquals(immuClient.async().safeGet("mak" + i).get(), new byte[] {(byte) i});
+      Assert.assertEquals(immuClient.async().safeGet("mbk" + i).get(), new byte[] {(byte) i});
+      Assert.assertEquals(immuClient.async().safeGet("mgk" + i).get(), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testScanAndDump() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.createDatabase("scandb");
+    immuClient.useDatabase("scandb");
+
+    final int keyCount = 250;
+
+    for (int i = 0; i < keyCount; i++) {
+      immuClient.set(String.format("s%03d", i), new byte[] {(byte) i});
+    }
+
+    Assert.assertEquals(count(immuClient.scan("s")), keyCount);
+    Assert.assertEquals(count(immuClient.scan("s1")), 100);
+    Assert.assertEquals(count(immuClient.iScan()), keyCount);
+    Assert.assertEquals(count(immuClient.dump()), keyCount);
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Managed channel sending its calls through client interceptors, so that tests can observe or
+ * alter the calls made by a client built with {@code setChannel}.
+ */
+class InterceptedChannel extends ManagedChannel {
+
+  private final ManagedChannel delegate;
+
+  private final Channel intercepted;
+
+  InterceptedChannel(ManagedChannel delegate, ClientInterceptor... interceptors) {
+    this.delegate = delegate;
+    this.intercepted = ClientInterceptors.intercept(delegate, interceptors);
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    return intercepted.newCall(method, callOptions);
+  }
+
+  @Override
+  public String authority() {
+    return delegate.authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    delegate.shutdown();
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    delegate.shutdownNow();
+    return this;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JournalRootHolderTest {
+
+  @Test
+  public void testRootsSurviveCompactionAndReopen() throws IOException {
+    String journalFile = Files.createTempDirectory("roots").resolve("journal").toString();
+
+    JournalRootHolder rootHolder = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile)
+            .setCapacity(4)
+            .build();
+
+    for (int i = 1; i <= 10; i++) {
+      rootHolder.setRoot(new Root("db" + (i % 3), i, new byte[32]));
+    }
+
+    // stale roots are ignored
+    rootHolder.setRoot(new Root("db0", 1, new byte[32]));
+
+    rootHolder.close();
+
+    JournalRootHolder reopened = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile)
+            .setCapacity(4)
+            .build();
+
+    Assert.assertEquals(reopened.getRoot("db0").getIndex(), 9);
+    Assert.assertEquals(reopened.getRoot("db1").getIndex(), 10);
+    Assert.assertEquals(reopened.getRoot("db2").getIndex(), 8);
+    Assert.assertNull(reopened.getRoot("db3"));
+
+    reopened.close();
+  }
+
+  @Test
+  public void testTornRecordIsDiscarded() throws IOException {
+    Path journalFile = Files.createTempDirectory("roots").resolve("journal");
+
+    JournalRootHolder rootHolder = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile.toString())
+            .build();
+
+    rootHolder.setRoot(new Root("defaultdb", 1, new byte[32]));
+    rootHolder.setRoot(new Root("defaultdb", 2, new byte[32]));
+    rootHolder.close();
+
+    // corrupts the index of the second record
+    try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+      file.seek(JournalRootHolder.HEADER_SIZE + RootRecords.RECORD_SIZE + RootRecords.INDEX_OFFSET);
+      file.writeLong(42);
+    }
+
+    JournalRootHolder recovered = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile.toString())
+            .build();
+
+    Assert.assertEquals(recovered.getRoot("defaultdb").getIndex(), 1);
+
+    recovered.setRoot(new Root("defaultdb", 3, new byte[32]));
+    recovered.close();
+
+    recovered = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile.toString())
+            .build();
+
+    Assert.assertEquals(recovered.getRoot("defaultdb").getIndex(), 3);
+
+    recovered.close();
+  }
+
+  @Test
+  public void testEmptyDatabaseRoot() throws IOException {
+    String journalFile = Files.createTempDirectory("roots").resolve("journal").toString();
+
+    JournalRootHolder rootHolder = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile)
+            .build();
+
+    // the root of an empty database has an empty digest
+    rootHolder.setRoot(new Root("defaultdb", 0, new byte[0]));
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getDigest(), new byte[0]);
+
+    rootHolder.close();
+
+    JournalRootHolder reopened = JournalRootHolder.newBuilder()
+            .setJournalFile(journalFile)
+            .build();
+
+    Assert.assertEquals(reopened.getRoot("defaultdb").getIndex(), 0);
+    Assert.assertEquals(reopened.getRoot("defaultdb").getDigest(), new byte[0]);
+
+    reopened.setRoot(new Root("defaultdb", 1, new byte[32]));
+
+    Assert.assertEquals(reopened.getRoot("defaultdb").getDigest(), new byte[32]);
+
+    reopened.close();
+  }
+
+}
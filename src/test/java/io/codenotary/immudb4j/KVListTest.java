@@ -0,0 +1,48 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class KVListTest {
+
+  @Test
+  public void testBuilder() {
+    List<KV> kvs = Arrays.asList(
+        new KVPair("k1".getBytes(), new byte[] {1}), new KVPair("k2".getBytes(), new byte[] {2}));
+
+    // the expected size only presizes the list
+    KVList kvList = KVList.newBuilder()
+            .withExpectedSize(1)
+            .add("k0", new byte[] {0})
+            .addAll(kvs)
+            .add("k3".getBytes(), new byte[] {3})
+            .build();
+
+    Assert.assertEquals(kvList.entries().size(), 4);
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(kvList.entries().get(i).getKey(), ("k" + i).getBytes());
+      Assert.assertEquals(kvList.entries().get(i).getValue(), new byte[] {(byte) i});
+    }
+
+    Assert.assertTrue(KVList.newBuilder().withExpectedSize(1000).build().entries().isEmpty());
+  }
+}
@@ -0,0 +1,105 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.testing.InMemoryImmuService;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+public class NettyTransportTest {
+
+  private Server server;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    InMemoryImmuService service = new InMemoryImmuService();
+
+    server = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0))
+            .addService(ServerInterceptors.intercept(service, service.authInterceptor()))
+            .build()
+            .start();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testCallerEventLoopGroup() {
+    NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+
+    try {
+      ImmuClient immuClient = ImmuClient.newBuilder()
+              .setServerPort(server.getPort())
+              .setEventLoopGroup(eventLoopGroup)
+              .build();
+
+      roundTrip(immuClient, "nt-group");
+
+      // the group belongs to the caller
+      Assert.assertFalse(eventLoopGroup.isShuttingDown());
+    } finally {
+      eventLoopGroup.shutdownGracefully();
+    }
+  }
+
+  @Test
+  public void testNioTransport() {
+    ImmuClient immuClient = ImmuClient.newBuilder()
+            .setServerPort(server.getPort())
+            .setUseNativeTransport(false)
+            .build();
+
+    roundTrip(immuClient, "nt-nio");
+  }
+
+  @Test
+  public void testNativeTransport() {
+    // falls back to NIO where epoll is not available
+    ImmuClient immuClient = ImmuClient.newBuilder()
+            .setServerPort(server.getPort())
+            .setUseNativeTransport(true)
+            .build();
+
+    roundTrip(immuClient, "nt-native");
+  }
+
+  private static void roundTrip(ImmuClient immuClient, String key) {
+    try {
+      immuClient.login("immudb", "immudb");
+      immuClient.useDatabase("defaultdb");
+
+      immuClient.set(key, new byte[] {1});
+      Assert.assertEquals(immuClient.get(key), new byte[] {1});
+
+      immuClient.logout();
+    } finally {
+      immuClient.shutdown();
+    }
+
+    Assert.assertTrue(immuClient.isShutdown());
+  }
+}
@@ -0,0 +1,197 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmuServiceGrpc;
+import io.codenotary.immudb.ImmudbProto;
+import io.grpc.ManagedChannel;
+import org.reactivestreams.Publisher;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public class PublisherTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testZScan() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int memberCount = 40;
+
+    // the client has no zAdd, calls without a session token go to the default database
+    ManagedChannel channel = server.newChannel();
+
+    try {
+      ImmuServiceGrpc.ImmuServiceBlockingStub stub = ImmuServiceGrpc.newBlockingStub(channel);
+
+      for (int i = 0; i < memberCount; i++) {
+        immuClient.set("zk" + i, new byte[] {(byte) i});
+
+        stub.zAdd(ImmudbProto.ZAddOptions.newBuilder()
+                .setSet(ByteString.copyFromUtf8("zset"))
+                .setScore(memberCount - i)
+                .setKey(ByteString.copyFromUtf8("zk" + i))
+                .build());
+      }
+    } finally {
+      channel.shutdown();
+    }
+
+    // members come by score, across several pages
+    List<KV> kvs = collect(immuClient.zScan("zset"));
+
+    Assert.assertEquals(kvs.size(), memberCount);
+
+    for (int i = 0; i < memberCount; i++) {
+      Assert.assertEquals(kvs.get(i).getKey(), ("zk" + (memberCount - 1 - i)).getBytes());
+      Assert.assertEquals(kvs.get(i).getValue(), new byte[] {(byte) (memberCount - 1 - i)});
+    }
+
+    kvs = collect(immuClient.zScan("zset".getBytes(), true));
+
+    Assert.assertEquals(kvs.size(), memberCount);
+    Assert.assertEquals(kvs.get(0).getKey(), "zk0".getBytes());
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testPublisherDemandAndCancellation() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 250;
+
+    // sorted sets are only reachable without a session token, in the default database
+    ManagedChannel channel = server.newChannel();
+
+    try {
+      ImmuServiceGrpc.ImmuServiceBlockingStub stub = ImmuServiceGrpc.newBlockingStub(channel);
+
+      for (int i = 0; i < keyCount; i++) {
+        immuClient.set("dz" + i, new byte[] {(byte) i});
+
+        stub.zAdd(ImmudbProto.ZAddOptions.newBuilder()
+                .setSet(ByteString.copyFromUtf8("dset"))
+                .setScore(i)
+                .setKey(ByteString.copyFromUtf8("dz" + i))
+                .build());
+      }
+    } finally {
+      channel.shutdown();
+    }
+
+    expectDemandHonoured(() -> immuClient.zScan("dset"), keyCount);
+
+    immuClient.createDatabase("demanddb");
+    immuClient.useDatabase("demanddb");
+
+    for (int i = 0; i < keyCount; i++) {
+      immuClient.set("d" + i, new byte[] {(byte) i});
+    }
+
+    expectDemandHonoured(() -> immuClient.scan("d"), keyCount);
+    expectDemandHonoured(immuClient::iScan, keyCount);
+    expectDemandHonoured(immuClient::dump, keyCount);
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  @Test
+  public void testCompletionOnExactDemand() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    // exactly one page of members
+    ManagedChannel channel = server.newChannel();
+
+    try {
+      ImmuServiceGrpc.ImmuServiceBlockingStub stub = ImmuServiceGrpc.newBlockingStub(channel);
+
+      for (int i = 0; i < 16; i++) {
+        immuClient.set("ez" + i, new byte[] {(byte) i});
+
+        stub.zAdd(ImmudbProto.ZAddOptions.newBuilder()
+                .setSet(ByteString.copyFromUtf8("eset"))
+                .setScore(i)
+                .setKey(ByteString.copyFromUtf8("ez" + i))
+                .build());
+      }
+    } finally {
+      channel.shutdown();
+    }
+
+    expectCompletionOnExactDemand(immuClient.zScan("eset"), 16);
+
+    immuClient.createDatabase("exactdb");
+    immuClient.useDatabase("exactdb");
+
+    // two full pages
+    for (int i = 0; i < 32; i++) {
+      immuClient.set("e" + i, new byte[] {(byte) i});
+    }
+
+    expectCompletionOnExactDemand(immuClient.scan("e"), 32);
+    expectCompletionOnExactDemand(immuClient.scan("e1"), 11);
+    expectCompletionOnExactDemand(immuClient.iScan(), 32);
+    expectCompletionOnExactDemand(immuClient.dump(), 32);
+
+    immuClient.useDatabase("defaultdb");
+    immuClient.logout();
+  }
+
+  // completion must not wait for demand beyond the last item
+  private static void expectCompletionOnExactDemand(Publisher<KV> publisher, int itemCount)
+      throws InterruptedException {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.request(itemCount);
+    subscriber.expectItems(itemCount);
+
+    Assert.assertTrue(subscriber.expectCompletion().isEmpty());
+  }
+
+  private static void expectDemandHonoured(Supplier<Publisher<KV>> publisher, int itemCount)
+      throws InterruptedException {
+    // items are delivered as requested, across page and chunk boundaries, and no further
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.get().subscribe(subscriber);
+
+    subscriber.request(5);
+    subscriber.expectItems(5);
+    subscriber.expectNothing();
+
+    subscriber.request(140);
+    subscriber.expectItems(140);
+    subscriber.expectNothing();
+
+    // once cancelled, neither items nor completion are signalled
+    subscriber.cancel();
+    subscriber.expectNothing();
+
+    subscriber = new RecordingSubscriber();
+    publisher.get().subscribe(subscriber);
+
+    subscriber.request(Long.MAX_VALUE);
+    Assert.assertEquals(subscriber.expectCompletion().size(), itemCount);
+  }
+}
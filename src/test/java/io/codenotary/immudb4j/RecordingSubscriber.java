@@ -0,0 +1,94 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** Records the signals of a publisher, leaving the demand to the test. */
+class RecordingSubscriber implements Subscriber<KV> {
+
+  private static final Object COMPLETE = new Object();
+
+  private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+
+  private final CountDownLatch subscribed = new CountDownLatch(1);
+
+  private volatile Subscription subscription;
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    this.subscription = subscription;
+    subscribed.countDown();
+  }
+
+  @Override
+  public void onNext(KV kv) {
+    signals.add(kv);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    signals.add(t);
+  }
+
+  @Override
+  public void onComplete() {
+    signals.add(COMPLETE);
+  }
+
+  void request(long n) throws InterruptedException {
+    Assert.assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+    subscription.request(n);
+  }
+
+  void cancel() {
+    subscription.cancel();
+  }
+
+  void expectItems(int n) throws InterruptedException {
+    for (int i = 0; i < n; i++) {
+      Assert.assertTrue(signals.poll(10, TimeUnit.SECONDS) instanceof KV, "Missing item " + i);
+    }
+  }
+
+  void expectNothing() throws InterruptedException {
+    Assert.assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  List<KV> expectCompletion() throws InterruptedException {
+    List<KV> kvs = new ArrayList<>();
+
+    for (;;) {
+      Object signal = signals.poll(10, TimeUnit.SECONDS);
+
+      if (signal == COMPLETE) {
+        return kvs;
+      }
+
+      Assert.assertTrue(signal instanceof KV, "Unexpected signal " + signal);
+      kvs.add((KV) signal);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.VerificationException;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SafeGetAllTest extends InMemoryImmuClientTest {
+
+  @Test
+  public void testSafeGetAll() throws VerificationException {
+    InterleavingInterceptor interleaving = new InterleavingInterceptor();
+
+    ImmuClient readingClient = ImmuClient.newBuilder()
+            .setChannel(new InterceptedChannel(server.newChannel(), interleaving))
+            .build();
+
+    try {
+      readingClient.login("immudb", "immudb");
+      readingClient.createDatabase("safegetalldb");
+      readingClient.useDatabase("safegetalldb");
+
+      immuClient.login("immudb", "immudb");
+      immuClient.useDatabase("safegetalldb");
+
+      final int keyCount = 20;
+
+      List<String> keys = new ArrayList<>();
+
+      for (int i = 0; i < keyCount; i++) {
+        keys.add("sga" + i);
+        readingClient.set("sga" + i, new byte[] {(byte) i});
+      }
+
+      List<KV> kvs = readingClient.safeGetAll(keys);
+
+      Assert.assertEquals(kvs.size(), keyCount);
+
+      for (int i = 0; i < keyCount; i++) {
+        Assert.assertEquals(kvs.get(i).getKey(), keys.get(i).getBytes());
+        Assert.assertEquals(kvs.get(i).getValue(), new byte[] {(byte) i});
+      }
+
+      // with a write landing between each of them, the proofs come back at different tree sizes
+      long index = readingClient.root().getIndex();
+
+      interleaving.write = () -> immuClient.set("sgaw", new byte[] {0});
+
+      kvs = readingClient.safeGetAll(keys);
+
+      interleaving.write = null;
+
+      Assert.assertEquals(kvs.size(), keyCount);
+
+      for (int i = 0; i < keyCount; i++) {
+        Assert.assertEquals(kvs.get(i).getValue(), new byte[] {(byte) i});
+      }
+
+      Assert.assertEquals(readingClient.root().getIndex(), index + keyCount - 1);
+
+      immuClient.useDatabase("defaultdb");
+      immuClient.logout();
+      readingClient.logout();
+    } finally {
+      readingClient.shutdown();
+    }
+  }
+
+  /**
+   * When a write is set, starts each SafeGet call once the previous one has completed and the
+   * write has been made.
+   */
+  private static class InterleavingInterceptor implements ClientInterceptor {
+
+    private volatile Runnable write;
+
+    private CountDownLatch previous;
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+      Runnable write = this.write;
+
+      if (write == null || !method.getFullMethodName().endsWith("/SafeGet")) {
+        return call;
+      }
+
+      return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(call) {
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+          CountDownLatch completed = new CountDownLatch(1);
+          CountDownLatch before;
+
+          synchronized (InterleavingInterceptor.this) {
+            before = previous;
+            previous = completed;
+          }
+
+          if (before != null) {
+            try {
+              Assert.assertTrue(before.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            write.run();
+          }
+
+          super.start(
+              new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(listener) {
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                  completed.countDown();
+                  super.onClose(status, trailers);
+                }
+              },
+              headers);
+        }
+      };
+    }
+  }
+}
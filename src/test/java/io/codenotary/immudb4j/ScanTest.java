@@ -0,0 +1,118 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ScanTest extends ImmuClientIntegrationTest {
+
+  @Test
+  public void testScan() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    final int keyCount = 600;
+
+    for (int i = 0; i < keyCount; i++) {
+      immuClient.set(String.format("scan_%04d", i), new byte[] {(byte) i});
+    }
+
+    List<KV> kvs = collect(immuClient.scan("scan_"), 7);
+
+    Assert.assertEquals(kvs.size(), keyCount);
+
+    for (int i = 0; i < keyCount; i++) {
+      Assert.assertEquals(kvs.get(i).getKey(), String.format("scan_%04d", i).getBytes());
+      Assert.assertEquals(kvs.get(i).getValue(), new byte[] {(byte) i});
+    }
+
+    immuClient.logout();
+  }
+
+  @Test
+  public void testHistory() throws InterruptedException {
+    immuClient.login("immudb", "immudb");
+    immuClient.useDatabase("defaultdb");
+
+    immuClient.set("history_k", new byte[] {0});
+    immuClient.set("history_k", new byte[] {1});
+    immuClient.set("history_k", new byte[] {2});
+
+    List<KV> kvs = collect(immuClient.history("history_k"), 1);
+
+    Assert.assertTrue(kvs.size() >= 3);
+
+    immuClient.logout();
+  }
+
+  private static List<KV> collect(Publisher<KV> publisher, int batch) throws InterruptedException {
+    List<KV> kvs = new ArrayList<>();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    publisher.subscribe(new Subscriber<KV>() {
+      private Subscription subscription;
+      private int pending;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        pending = batch;
+        subscription.request(batch);
+      }
+
+      @Override
+      public void onNext(KV kv) {
+        kvs.add(kv);
+
+        if (--pending == 0) {
+          pending = batch;
+          subscription.request(batch);
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        // subscribers must not throw, the error is reported by the caller
+        error.set(t);
+        latch.countDown();
+      }
+
+      @Override
+      public void onComplete() {
+        latch.countDown();
+      }
+    });
+
+    Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+    if (error.get() != null) {
+      throw new AssertionError("Publisher failed", error.get());
+    }
+
+    return kvs;
+  }
+}
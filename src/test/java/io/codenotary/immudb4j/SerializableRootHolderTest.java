@@ -0,0 +1,100 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class SerializableRootHolderTest {
+
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+    SerializableRootHolder rootHolder = new SerializableRootHolder();
+
+    byte[] digest = new byte[32];
+    digest[0] = 1;
+    digest[31] = (byte) 0xff;
+
+    rootHolder.setRoot(new Root("defaultdb", 300, digest));
+    rootHolder.setRoot(new Root("db\u00f1", Long.MAX_VALUE, new byte[32]));
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    rootHolder.writeTo(os);
+
+    SerializableRootHolder readRootHolder = new SerializableRootHolder();
+    readRootHolder.readFrom(new ByteArrayInputStream(os.toByteArray()));
+
+    Assert.assertEquals(readRootHolder.getRoot("defaultdb").getIndex(), 300);
+    Assert.assertEquals(readRootHolder.getRoot("defaultdb").getDigest(), digest);
+    Assert.assertEquals(readRootHolder.getRoot("db\u00f1").getIndex(), Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testLegacyJsonIsRead() throws IOException {
+    String json = "{\"defaultdb\":{\"database\":\"defaultdb\",\"index\":5,\"digest\":[1,2,3]}}";
+
+    SerializableRootHolder rootHolder = new SerializableRootHolder();
+    rootHolder.readFrom(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getIndex(), 5);
+    Assert.assertEquals(rootHolder.getRoot("defaultdb").getDigest(), new byte[] {1, 2, 3});
+  }
+
+  @Test
+  public void testReadStopsAtTheEndOfTheRoots() throws IOException {
+    SerializableRootHolder rootHolder = new SerializableRootHolder();
+    rootHolder.setRoot(new Root("defaultdb", 0, new byte[0]));
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    rootHolder.writeTo(os);
+    os.write(new byte[] {1, 2, 3});
+
+    ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+
+    SerializableRootHolder readRootHolder = new SerializableRootHolder();
+    readRootHolder.readFrom(is);
+
+    Assert.assertEquals(readRootHolder.getRoot("defaultdb").getDigest(), new byte[0]);
+    Assert.assertEquals(is.available(), 3);
+  }
+
+  @Test
+  public void testInvalidLengthsAreRejected() {
+    // magic, version, one root named "db" with index 1, then a digest length of 2^31
+    byte[] digestTooLong = {'I', 'M', 'R', 'H', 1, 1, 2, 'd', 'b', 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 8};
+    // magic, version, one root with a database name length of 1000
+    byte[] nameTooLong = {'I', 'M', 'R', 'H', 1, 1, (byte) 0xe8, 7};
+    // magic, version, a root count of 2^63
+    byte[] tooManyRoots = {'I', 'M', 'R', 'H', 1,
+        (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1};
+
+    for (byte[] bytes : new byte[][] {digestTooLong, nameTooLong, tooManyRoots}) {
+      try {
+        new SerializableRootHolder().readFrom(new ByteArrayInputStream(bytes));
+        Assert.fail("Invalid roots read");
+      } catch (RuntimeException e) {
+        Assert.assertTrue(e.getCause() instanceof IOException);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import io.codenotary.immudb4j.crypto.Root;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class SharedFileRootHolderTest {
+
+  @Test
+  public void testRootsAreSharedThroughTheFile() throws IOException {
+    String rootsFile = Files.createTempDirectory("roots").resolve("shared_roots").toString();
+
+    // each holder stands for a different process sharing the roots file
+    SharedFileRootHolder rootHolder1 = SharedFileRootHolder.newBuilder()
+            .setRootsFile(rootsFile)
+            .setCapacity(4)
+            .build();
+
+    SharedFileRootHolder rootHolder2 = SharedFileRootHolder.newBuilder()
+            .setRootsFile(rootsFile)
+            .build();
+
+    Assert.assertNull(rootHolder2.getRoot("defaultdb"));
+
+    rootHolder1.setRoot(new Root("defaultdb", 5, new byte[32]));
+
+    Assert.assertEquals(rootHolder2.getRoot("defaultdb").getIndex(), 5);
+
+    rootHolder2.setRoot(new Root("defaultdb", 3, new byte[32]));
+    rootHolder2.setRoot(new Root("otherdb", 1, new byte[32]));
+
+    Assert.assertEquals(rootHolder1.getRoot("defaultdb").getIndex(), 5);
+    Assert.assertEquals(rootHolder1.getRoot("otherdb").getIndex(), 1);
+
+    rootHolder2.setRoot(new Root("defaultdb", 8, new byte[32]));
+
+    Assert.assertEquals(rootHolder1.getRoot("defaultdb").getIndex(), 8);
+
+    rootHolder1.close();
+    rootHolder2.close();
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testFullRootsFile() throws IOException {
+    String rootsFile = Files.createTempDirectory("roots").resolve("shared_roots").toString();
+
+    SharedFileRootHolder rootHolder = SharedFileRootHolder.newBuilder()
+            .setRootsFile(rootsFile)
+            .setCapacity(1)
+            .build();
+
+    rootHolder.setRoot(new Root("defaultdb", 1, new byte[32]));
+    rootHolder.setRoot(new Root("otherdb", 1, new byte[32]));
+  }
+
+  @Test
+  public void testEmptyDatabaseRoot() throws IOException {
+    String rootsFile = Files.createTempDirectory("roots").resolve("shared_roots").toString();
+
+    SharedFileRootHolder rootHolder1 = SharedFileRootHolder.newBuilder()
+            .setRootsFile(rootsFile)
+            .build();
+
+    SharedFileRootHolder rootHolder2 = SharedFileRootHolder.newBuilder()
+            .setRootsFile(rootsFile)
+            .build();
+
+    // the root of an empty database has an empty digest
+    rootHolder1.setRoot(new Root("defaultdb", 0, new byte[0]));
+
+    Assert.assertEquals(rootHolder2.getRoot("defaultdb").getIndex(), 0);
+    Assert.assertEquals(rootHolder2.getRoot("defaultdb").getDigest(), new byte[0]);
+
+    rootHolder2.setRoot(new Root("defaultdb", 1, new byte[32]));
+
+    Assert.assertEquals(rootHolder1.getRoot("defaultdb").getDigest(), new byte[32]);
+
+    rootHolder1.close();
+    rootHolder2.close();
+  }
+
+}
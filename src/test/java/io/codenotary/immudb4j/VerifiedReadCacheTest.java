@@ -0,0 +1,130 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb4j.crypto.VerificationException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class VerifiedReadCacheTest extends InMemoryImmuClientTest {
+
+  private static ByteString key(String key) {
+    return ByteString.copyFromUtf8(key);
+  }
+
+  private static VerifiedReadCache.Entry entry(int value, long itemIndex, long rootIndex) {
+    return new VerifiedReadCache.Entry(new byte[] {(byte) value}, itemIndex, ByteString.EMPTY, rootIndex, new byte[32]);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntriesAreEvicted() {
+    VerifiedReadCache cache = new VerifiedReadCache(2);
+
+    cache.put("defaultdb", key("k1"), entry(1, 1, 10), cache.generation());
+    cache.put("defaultdb", key("k2"), entry(2, 2, 10), cache.generation());
+
+    Assert.assertNotNull(cache.get("defaultdb", key("k1")));
+
+    cache.put("defaultdb", key("k3"), entry(3, 3, 10), cache.generation());
+
+    Assert.assertNotNull(cache.get("defaultdb", key("k1")));
+    Assert.assertNull(cache.get("defaultdb", key("k2")));
+    Assert.assertEquals(cache.get("defaultdb", key("k3")).getValue(), new byte[] {3});
+    Assert.assertNull(cache.get("otherdb", key("k3")));
+  }
+
+  @Test
+  public void testReadsRacingWritesAreNotCached() {
+    VerifiedReadCache cache = new VerifiedReadCache(16);
+
+    long generation = cache.generation();
+
+    cache.invalidate("defaultdb", key("k1"));
+
+    cache.put("defaultdb", key("k1"), entry(1, 1, 10), generation);
+
+    Assert.assertNull(cache.get("defaultdb", key("k1")));
+
+    cache.put("defaultdb", key("k1"), entry(2, 2, 11), cache.generation());
+
+    Assert.assertEquals(cache.get("defaultdb", key("k1")).getItemIndex(), 2);
+
+    cache.invalidate("defaultdb", key("k1"));
+
+    Assert.assertNull(cache.get("defaultdb", key("k1")));
+  }
+
+  @Test
+  public void testCacheThroughClient() throws VerificationException {
+    CallCounter calls = new CallCounter();
+
+    ImmuClient cachingClient = ImmuClient.newBuilder()
+            .setChannel(new InterceptedChannel(server.newChannel(), calls))
+            .setVerifiedReadCacheSize(16)
+            .build();
+
+    try {
+      cachingClient.login("immudb", "immudb");
+      cachingClient.createDatabase("cachedb");
+      cachingClient.useDatabase("cachedb");
+
+      immuClient.login("immudb", "immudb");
+      immuClient.useDatabase("cachedb");
+
+      cachingClient.set("ck", new byte[] {1});
+      cachingClient.set("other1", new byte[] {0});
+      cachingClient.set("other2", new byte[] {0});
+
+      // the first read is verified, the second one served from the cache
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {1});
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {1});
+      Assert.assertEquals(calls.count("SafeGet"), 1);
+      Assert.assertEquals(calls.count("Get"), 0);
+
+      // once the trusted root advances, the cached read is proven again against its own root
+      immuClient.set("unrelated", new byte[] {2});
+      cachingClient.safeGet("other1");
+
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {1});
+      Assert.assertEquals(calls.count("SafeGet"), 3);
+
+      // and then served from the cache at the new root
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {1});
+      Assert.assertEquals(calls.count("SafeGet"), 3);
+
+      // a write made by another client is noticed when revalidating
+      immuClient.set("ck", new byte[] {3});
+      cachingClient.safeGet("other2");
+
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {3});
+      Assert.assertEquals(calls.count("SafeGet"), 6);
+
+      // a write made through the client invalidates the cached read
+      cachingClient.set("ck", new byte[] {4});
+
+      Assert.assertEquals(cachingClient.safeGet("ck"), new byte[] {4});
+      Assert.assertEquals(calls.count("SafeGet"), 7);
+      Assert.assertEquals(calls.count("Get"), 0);
+
+      immuClient.useDatabase("defaultdb");
+      immuClient.logout();
+      cachingClient.logout();
+    } finally {
+      cachingClient.shutdown();
+    }
+  }
+}
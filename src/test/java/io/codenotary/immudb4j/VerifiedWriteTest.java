@@ -0,0 +1,156 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import io.codenotary.immudb4j.crypto.VerificationException;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.function.UnaryOperator;
+
+public class VerifiedWriteTest extends InMemoryImmuClientTest {
+
+  // leaves the leaf and root, which are all that folding a write into the frontier needs
+  private static final UnaryOperator<ImmudbProto.Proof> STRIP_PATHS =
+      proof -> proof.toBuilder().clearInclusionPath().clearConsistencyPath().build();
+
+  @Test
+  public void testSafeSetVerification() throws VerificationException {
+    ProofInterceptor interceptor = new ProofInterceptor();
+
+    ImmuClient writingClient = ImmuClient.newBuilder()
+            .setChannel(new InterceptedChannel(server.newChannel(), interceptor))
+            .build();
+
+    try {
+      writingClient.login("immudb", "immudb");
+      writingClient.createDatabase("writedb");
+      writingClient.useDatabase("writedb");
+
+      immuClient.login("immudb", "immudb");
+      immuClient.useDatabase("writedb");
+
+      writingClient.set("vw", new byte[] {0});
+
+      // the first safe write walks the proof paths and takes the frontier of the proven tree
+      writingClient.safeSet("vw0", new byte[] {0});
+
+      // consecutive safe writes are verified by folding, without the proof paths
+      interceptor.transform = STRIP_PATHS;
+
+      for (int i = 1; i < 10; i++) {
+        writingClient.safeSet("vw" + i, new byte[] {(byte) i});
+      }
+
+      // after a foreign write, the item is no longer appended right after the trusted root
+      immuClient.set("foreign", new byte[] {0});
+
+      assertRejected(writingClient, "vw10");
+
+      interceptor.transform = null;
+
+      writingClient.safeSet("vw11", new byte[] {11});
+
+      // the full proof gave the frontier of its tree, so folding resumes
+      interceptor.transform = STRIP_PATHS;
+
+      writingClient.safeSet("vw12", new byte[] {12});
+
+      // a tampered proof is rejected on the folding path too
+      long index = writingClient.root().getIndex();
+
+      interceptor.transform = proof -> proof.toBuilder().setRoot(flip(proof.getRoot())).build();
+
+      assertRejected(writingClient, "vw13");
+
+      interceptor.transform = proof -> proof.toBuilder().setLeaf(flip(proof.getLeaf())).build();
+
+      assertRejected(writingClient, "vw14");
+
+      Assert.assertEquals(writingClient.root().getIndex(), index);
+
+      interceptor.transform = null;
+
+      Assert.assertEquals(writingClient.safeGet("vw9"), new byte[] {9});
+      Assert.assertEquals(writingClient.safeGet("vw12"), new byte[] {12});
+
+      immuClient.useDatabase("defaultdb");
+      immuClient.logout();
+      writingClient.logout();
+    } finally {
+      writingClient.shutdown();
+    }
+  }
+
+  private static void assertRejected(ImmuClient client, String key) {
+    try {
+      client.safeSet(key, new byte[] {0});
+      Assert.fail("Proof verified");
+    } catch (VerificationException e) {
+      // expected
+    }
+  }
+
+  private static ByteString flip(ByteString digest) {
+    byte[] bytes = digest.toByteArray();
+    bytes[0] ^= 1;
+    return ByteString.copyFrom(bytes);
+  }
+
+  /**
+   * Transforms the proofs returned by SafeSet calls, when a transformation is set.
+   */
+  private static class ProofInterceptor implements ClientInterceptor {
+
+    private volatile UnaryOperator<ImmudbProto.Proof> transform;
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+      UnaryOperator<ImmudbProto.Proof> transform = this.transform;
+
+      if (transform == null || !method.getFullMethodName().endsWith("/SafeSet")) {
+        return call;
+      }
+
+      return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(call) {
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+          super.start(
+              new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(listener) {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onMessage(RespT message) {
+                  super.onMessage((RespT) transform.apply((ImmudbProto.Proof) message));
+                }
+              },
+              headers);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchVerifierTest {
+
+  private static final int TREE_SIZE = 1000;
+  private static final int FIRST_SIZE = 600;
+
+  private final MerkleTree tree = new MerkleTree();
+  private final List<ImmudbProto.Item> items = new ArrayList<>();
+
+  public BatchVerifierTest() {
+    for (int i = 0; i < TREE_SIZE; i++) {
+      ImmudbProto.Item item =
+          ImmudbProto.Item.newBuilder()
+              .setKey(ByteString.copyFromUtf8("key" + i))
+              .setValue(ByteString.copyFromUtf8("value" + i))
+              .setIndex(i)
+              .build();
+
+      tree.add(item);
+      items.add(item);
+    }
+  }
+
+  private List<ImmudbProto.SafeItem> safeItems(long size) {
+    List<ImmudbProto.SafeItem> safeItems = new ArrayList<>();
+
+    for (int i = 0; i < size; i++) {
+      safeItems.add(
+          ImmudbProto.SafeItem.newBuilder()
+              .setItem(items.get(i))
+              .setProof(tree.proof(i, size, FIRST_SIZE))
+              .build());
+    }
+
+    return safeItems;
+  }
+
+  private BatchVerifier verifier() {
+    return BatchVerifier.newBuilder().setBatchSize(16).setMinCachedLevel(2).build();
+  }
+
+  @Test
+  public void testVerifyBatch() throws VerificationException {
+    Root root = new Root("defaultdb", FIRST_SIZE - 1, tree.root(FIRST_SIZE));
+
+    List<ImmudbProto.SafeItem> safeItems = safeItems(TREE_SIZE);
+    safeItems.addAll(safeItems(800));
+
+    verifier().verify(safeItems, root);
+  }
+
+  @Test(expectedExceptions = VerificationException.class)
+  public void testTamperedItem() throws VerificationException {
+    Root root = new Root("defaultdb", FIRST_SIZE - 1, tree.root(FIRST_SIZE));
+
+    List<ImmudbProto.SafeItem> safeItems = safeItems(TREE_SIZE);
+
+    ImmudbProto.SafeItem tampered = safeItems.get(700);
+    safeItems.set(700, tampered.toBuilder()
+        .setItem(tampered.getItem().toBuilder().setValue(ByteString.copyFromUtf8("tampered")))
+        .build());
+
+    verifier().verify(safeItems, root);
+  }
+
+  @Test
+  public void testTamperedPathReachingVerifiedNode() throws VerificationException {
+    VerifiedNodes verifiedNodes = new VerifiedNodes(2);
+
+    CryptoUtils.verifyInclusion(tree.proof(0, TREE_SIZE, FIRST_SIZE), Hasher.jca(), verifiedNodes);
+
+    // leaves 0 to 3 share the verified node at level 2, whatever follows it on the path
+    ImmudbProto.Proof proof = tree.proof(1, TREE_SIZE, FIRST_SIZE);
+
+    CryptoUtils.verifyInclusion(proof, Hasher.jca(), verifiedNodes);
+
+    // the walk stops at the verified node, so the path above it is not looked at
+    CryptoUtils.verifyInclusion(
+        proof.toBuilder().setInclusionPath(5, ByteString.copyFrom(new byte[32])).build(),
+        Hasher.jca(),
+        verifiedNodes);
+
+    for (int step = 0; step < 2; step++) {
+      ImmudbProto.Proof tampered =
+          proof.toBuilder().setInclusionPath(step, ByteString.copyFrom(new byte[32])).build();
+
+      try {
+        CryptoUtils.verifyInclusion(tampered, Hasher.jca(), verifiedNodes);
+        Assert.fail("Tampered inclusion path at step " + step + " was accepted");
+      } catch (VerificationException expected) {
+        // the recomputed node differs from the verified one
+      }
+    }
+  }
+
+  @Test(expectedExceptions = VerificationException.class)
+  public void testTamperedInclusionPath() throws VerificationException {
+    Root root = new Root("defaultdb", FIRST_SIZE - 1, tree.root(FIRST_SIZE));
+
+    List<ImmudbProto.SafeItem> safeItems = safeItems(TREE_SIZE);
+
+    ImmudbProto.SafeItem tampered = safeItems.get(701);
+    safeItems.set(701, tampered.toBuilder()
+        .setProof(tampered.getProof().toBuilder().setInclusionPath(0, ByteString.copyFrom(new byte[32])))
+        .build());
+
+    verifier().verify(safeItems, root);
+  }
+
+  @Test(expectedExceptions = VerificationException.class)
+  public void testInconsistentRoot() throws VerificationException {
+    Root root = new Root("defaultdb", FIRST_SIZE - 1, tree.root(FIRST_SIZE - 1));
+
+    verifier().verify(safeItems(TREE_SIZE), root);
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class CryptoUtilsTest {
+
+  // covers trees of every shape up to two complete levels past 16 leaves
+  private static final int MAX_SIZE = 33;
+
+  private MerkleTree tree;
+
+  private static ImmudbProto.Item item(long index) {
+    return ImmudbProto.Item.newBuilder()
+        .setKey(ByteString.copyFromUtf8("key" + index))
+        .setValue(ByteString.copyFromUtf8("value" + index))
+        .setIndex(index)
+        .build();
+  }
+
+  private Root root(long size) {
+    return new Root("defaultdb", size - 1, tree.root(size));
+  }
+
+  @BeforeClass
+  public void beforeClass() {
+    tree = new MerkleTree();
+
+    for (int i = 0; i < MAX_SIZE; i++) {
+      tree.add(item(i));
+    }
+  }
+
+  @Test
+  public void testInclusion() throws VerificationException {
+    for (long size = 1; size <= MAX_SIZE; size++) {
+      for (long index = 0; index < size; index++) {
+        CryptoUtils.verifyInclusion(tree.proof(index, size, 0), item(index));
+      }
+    }
+  }
+
+  @Test
+  public void testTamperedInclusion() {
+    for (long size = 1; size <= MAX_SIZE; size++) {
+      for (long index = 0; index < size; index++) {
+        ImmudbProto.Proof proof = tree.proof(index, size, 0);
+        long i = index;
+
+        assertFails(() -> CryptoUtils.verifyInclusion(proof, item(i + 1)));
+
+        for (int step = 0; step < proof.getInclusionPathCount(); step++) {
+          ImmudbProto.Proof tampered =
+              proof.toBuilder().setInclusionPath(step, flip(proof.getInclusionPath(step))).build();
+
+          assertFails(() -> CryptoUtils.verifyInclusion(tampered, item(i)));
+        }
+
+        ImmudbProto.Proof wrongRoot = proof.toBuilder().setRoot(flip(proof.getRoot())).build();
+
+        assertFails(() -> CryptoUtils.verifyInclusion(wrongRoot, item(i)));
+      }
+    }
+  }
+
+  @Test
+  public void testConsistency() throws VerificationException {
+    for (long first = 1; first <= MAX_SIZE; first++) {
+      for (long second = first; second <= MAX_SIZE; second++) {
+        CryptoUtils.verifyConsistency(tree.proof(second - 1, second, first), root(first));
+      }
+    }
+  }
+
+  @Test
+  public void testTamperedConsistency() {
+    for (long first = 1; first <= MAX_SIZE; first++) {
+      for (long second = first + 1; second <= MAX_SIZE; second++) {
+        ImmudbProto.Proof proof = tree.proof(second - 1, second, first);
+        Root root = root(first);
+
+        for (int step = 0; step < proof.getConsistencyPathCount(); step++) {
+          ImmudbProto.Proof tampered =
+              proof.toBuilder().setConsistencyPath(step, flip(proof.getConsistencyPath(step))).build();
+
+          assertFails(() -> CryptoUtils.verifyConsistency(tampered, root));
+        }
+
+        byte[] digest = root.getDigest().clone();
+        digest[0] ^= 1;
+
+        assertFails(() -> CryptoUtils.verifyConsistency(proof, new Root("defaultdb", root.getIndex(), digest)));
+        assertFails(() -> CryptoUtils.verifyConsistency(proof, new Root("defaultdb", root.getIndex() + 1, root.getDigest())));
+
+        ImmudbProto.Proof wrongRoot = proof.toBuilder().setRoot(flip(proof.getRoot())).build();
+
+        assertFails(() -> CryptoUtils.verifyConsistency(wrongRoot, root));
+
+        // trusted digests of the wrong length are rejected rather than overrun
+        assertFails(() -> CryptoUtils.verifyConsistency(proof, new Root("defaultdb", root.getIndex(), new byte[0])));
+        assertFails(() -> CryptoUtils.verifyConsistency(proof, new Root("defaultdb", root.getIndex(), new byte[31])));
+      }
+    }
+  }
+
+  private static ByteString flip(ByteString digest) {
+    byte[] bytes = digest.toByteArray();
+    bytes[0] ^= 1;
+    return ByteString.copyFrom(bytes);
+  }
+
+  private static void assertFails(Verification verification) {
+    try {
+      verification.run();
+    } catch (VerificationException e) {
+      return;
+    }
+
+    Assert.fail("Proof verified");
+  }
+
+  private interface Verification {
+
+    void run() throws VerificationException;
+  }
+}
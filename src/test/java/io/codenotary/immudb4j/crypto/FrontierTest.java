@@ -0,0 +1,71 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FrontierTest {
+
+  private static ImmudbProto.Item item(long index) {
+    return ImmudbProto.Item.newBuilder()
+        .setKey(ByteString.copyFromUtf8("key" + index))
+        .setValue(ByteString.copyFromUtf8("value" + index))
+        .setIndex(index)
+        .build();
+  }
+
+  @Test
+  public void testAppendedItemsAreVerifiedByFolding() throws VerificationException {
+    MerkleTree tree = new MerkleTree();
+
+    for (int i = 0; i < 37; i++) {
+      tree.add(item(i));
+    }
+
+    Frontier frontier = Frontier.of(tree.proof(36, 37, 0), Hasher.jca());
+
+    Assert.assertEquals(frontier.size(), 37);
+    Assert.assertTrue(frontier.isAt(new Root("defaultdb", 36, tree.root(37))));
+
+    for (int i = 37; i < 100; i++) {
+      ImmudbProto.Item item = item(i);
+      tree.add(item);
+
+      frontier = CryptoUtils.verifyAppend(tree.proof(i, i + 1, i), item, frontier, Hasher.jca());
+
+      Assert.assertEquals(frontier.root(), tree.root(i + 1));
+    }
+  }
+
+  @Test(expectedExceptions = VerificationException.class)
+  public void testTamperedAppendedItem() throws VerificationException {
+    MerkleTree tree = new MerkleTree();
+
+    for (int i = 0; i < 10; i++) {
+      tree.add(item(i));
+    }
+
+    Frontier frontier = Frontier.of(tree.proof(9, 10, 0), Hasher.jca());
+
+    tree.add(item(10));
+
+    CryptoUtils.verifyAppend(tree.proof(10, 11, 10), item(11), frontier, Hasher.jca());
+  }
+
+}
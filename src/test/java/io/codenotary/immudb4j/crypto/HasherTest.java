@@ -0,0 +1,43 @@
+/*
+Copyright 2019-2020 vChain, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package io.codenotary.immudb4j.crypto;
+
+import com.google.protobuf.ByteString;
+import io.codenotary.immudb.ImmudbProto;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HasherTest {
+
+  @Test
+  public void testProvidersProduceSameDigests() {
+    ImmudbProto.Item item =
+        ImmudbProto.Item.newBuilder()
+            .setKey(ByteString.copyFromUtf8("key"))
+            .setValue(ByteString.copyFromUtf8("value"))
+            .setIndex(42)
+            .build();
+
+    Assert.assertEquals(
+        CryptoUtils.entryDigest(item, Hasher.ofProvider("SUN")), CryptoUtils.entryDigest(item));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownProvider() {
+    Hasher.ofProvider("NO_SUCH_PROVIDER");
+  }
+
+}